@@ -0,0 +1,40 @@
+package flappybird.bench;
+
+import flappybird.Autopilot;
+import flappybird.World;
+
+/**
+ * Measures a tick of a game played by the autopilot: one decision and one step
+ * of the world. The world keeps going from one call to the next, so the
+ * decisions cover the pipes, Mario's rounds and the restarts in their usual
+ * proportions.
+ *
+ * @author Jiaxuan Wang
+ */
+public class AutopilotBenchmark extends Benchmark {
+
+    private static final long SEED = 42;
+
+    private Autopilot autopilot;
+    private World world;
+
+    public AutopilotBenchmark() {
+        super("autopilot.tick");
+    }
+
+    public void setUp() {
+        autopilot = new Autopilot();
+        world = new World(0, SEED);
+    }
+
+    public long run(int ops) {
+        long flaps = 0;
+        for (int i = 0; i < ops; i++) {
+            int input = autopilot.decide(world);
+            world.step(input);
+            flaps += input;
+        }
+        return flaps + world.getScore();
+    }
+
+}
@@ -0,0 +1,168 @@
+package flappybird.bench;
+
+import flappybird.Autopilot;
+import flappybird.BatchEnvironment;
+import flappybird.Bird;
+import flappybird.Pipe;
+import flappybird.PipeRing;
+import flappybird.World;
+import java.util.Random;
+
+/**
+ * Checks that {@link BatchEnvironment} plays the same games as {@link World}.
+ * <p>
+ * Every game in a batch is played alongside a {@code World} on the same
+ * course, with the same flaps. After each step the batch's observations,
+ * rewards, scores and ended games are compared with what the world says. A
+ * world starts in the ready phase, so the first input of each game is a flap,
+ * which starts it playing. When a world reaches a Mario round, which the batch
+ * leaves out, its game is no longer compared: the bird is left to fall, and
+ * the next game is compared again.
+ * <p>
+ * The autopilot plays a small batch, which is stepped on one thread and scores
+ * well into the tens. Random flaps play a batch large enough to be split across
+ * the fork/join pool.
+ * <p>
+ * Run with {@code ant batch-check}. The check exits with status 1 and prints
+ * the first few differences if there are any.
+ *
+ * @author Jiaxuan Wang
+ */
+public class BatchCheck {
+
+    private static final long SEED = 42;
+    private static final int AUTOPILOT_GAMES = 64;
+    private static final int AUTOPILOT_STEPS = 20000;
+    private static final int RANDOM_GAMES = 4096;
+    private static final int RANDOM_STEPS = 1500;
+    private static final int RANDOM_FLAP_ODDS = 12; // one tick in this many flaps
+    private static final int GAP_MIDDLE = (Pipe.BOUND_HEIGHT + Pipe.LOWER_OFFSET) / 2;
+    private static final int MAX_REPORTED = 10;
+
+    private final Random random = new Random(SEED);
+    private long cases;
+    private long differences;
+    private long games;
+
+    private BatchCheck() {
+    }
+
+    /**
+     * Runs every check.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        BatchCheck check = new BatchCheck();
+        check.run("autopilot", AUTOPILOT_GAMES, AUTOPILOT_STEPS, true);
+        check.run("random", RANDOM_GAMES, RANDOM_STEPS, false);
+        System.out.println(check.cases + " values checked over " + check.games + " games, " + check.differences
+                + " differences");
+        if (check.differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void run(String name, int size, int steps, boolean autopilot) {
+        BatchEnvironment batch = new BatchEnvironment(size, random.nextLong());
+        World[] worlds = new World[size];
+        Autopilot[] pilots = new Autopilot[size];
+        boolean[] compared = new boolean[size];
+        int[] scores = new int[size];
+        boolean[] flaps = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            worlds[i] = newWorld(batch, i);
+            pilots[i] = new Autopilot();
+            compared[i] = true;
+            checkObservations(batch, i, worlds[i], name + " game " + i + " start");
+        }
+
+        for (int step = 1; step <= steps; step++) {
+            for (int i = 0; i < size; i++) {
+                World world = worlds[i];
+                int input;
+                if (!compared[i]) {
+                    input = 0;
+                } else if (world.getMode() == World.READY) {
+                    input = World.FLAP;
+                } else if (autopilot) {
+                    input = pilots[i].decide(world);
+                } else {
+                    input = random.nextInt(RANDOM_FLAP_ODDS) == 0 ? World.FLAP : 0;
+                }
+                flaps[i] = (input & World.FLAP) != 0;
+                if (compared[i]) {
+                    scores[i] = world.getScore();
+                    world.step(input);
+                }
+            }
+            batch.step(flaps);
+
+            for (int i = 0; i < size; i++) {
+                boolean done = batch.getDone()[i];
+                String where = name + " game " + i + " step " + step;
+                if (compared[i]) {
+                    World world = worlds[i];
+                    boolean crashed = world.getMode() == World.CRASHED;
+                    float reward = (world.getScore() - scores[i]) * BatchEnvironment.PIPE_REWARD
+                            + (crashed ? BatchEnvironment.CRASH_REWARD : 0);
+                    record(crashed, done, "ended, " + where);
+                    record(reward, batch.getRewards()[i], "reward, " + where);
+                    if (crashed) {
+                        record(world.getScore(), batch.getFinalScores()[i], "final score, " + where);
+                    } else {
+                        record(world.getScore(), batch.getScore(i), "score, " + where);
+                        checkObservations(batch, i, world, where);
+                    }
+                    if (world.getMode() == World.MARIO) {
+                        compared[i] = false;
+                    }
+                }
+                if (done) {
+                    worlds[i] = newWorld(batch, i);
+                    compared[i] = true;
+                    checkObservations(batch, i, worlds[i], where + " restart");
+                }
+            }
+        }
+    }
+
+    private World newWorld(BatchEnvironment batch, int game) {
+        games++;
+        return new World(0, random.nextLong(), batch.getCourseSeed(game));
+    }
+
+    private void checkObservations(BatchEnvironment batch, int game, World world, String where) {
+        Bird bird = world.getBird();
+        PipeRing pipes = world.getPipes();
+        Pipe next = pipes.last();
+        for (int k = 0; k < pipes.size(); k++) {
+            if (pipes.get(k).getX() + pipes.get(k).getWidth() > bird.getX()) {
+                next = pipes.get(k);
+                break;
+            }
+        }
+        float[] observations = batch.getObservations();
+        int o = game * BatchEnvironment.OBSERVATION_SIZE;
+        record((float) bird.getExactY(), observations[o], "bird y, " + where);
+        record((float) bird.getYVel(), observations[o + 1], "bird velocity, " + where);
+        record(next.getX() - bird.getX(), observations[o + 2], "distance to the next pipe, " + where);
+        record((float) (next.getUpperY() + GAP_MIDDLE - bird.getExactY()), observations[o + 3],
+                "height of the next gap, " + where);
+    }
+
+    private void record(boolean expected, boolean actual, String description) {
+        record(expected ? 1 : 0, actual ? 1 : 0, description);
+    }
+
+    private void record(float expected, float actual, String description) {
+        cases++;
+        if (Float.compare(expected, actual) != 0) {
+            differences++;
+            if (differences <= MAX_REPORTED) {
+                System.out.println("World says " + expected + ", the batch says " + actual + ": " + description);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package flappybird.bench;
+
+/**
+ * One thing to measure, such as drawing a frame or checking a collision.
+ * <p>
+ * {@link BenchmarkRunner} calls {@link #setUp()} once, then {@link #run(int)}
+ * over and over with as many operations as fit in a few milliseconds, timing
+ * each call and counting the bytes it allocates. Whatever {@code run} computes
+ * should go into its return value, so the JIT can't decide the work is unused
+ * and throw it away.
+ * <p>
+ * A cold start benchmark is only run once per JVM, in a fresh JVM started just
+ * for it, so that class loading and an empty JIT are part of what it measures.
+ *
+ * @author Jiaxuan Wang
+ */
+public abstract class Benchmark {
+
+    private final String name;
+    private final boolean coldStart;
+
+    /**
+     * Constructs a {@code Benchmark} measured in a warmed-up JVM.
+     *
+     * @param name the name to report it by, such as {@code "render.PLAYING.new"}
+     */
+    protected Benchmark(String name) {
+        this(name, false);
+    }
+
+    /**
+     * Constructs a {@code Benchmark}.
+     *
+     * @param name      the name to report it by
+     * @param coldStart whether each measurement needs a fresh JVM
+     */
+    protected Benchmark(String name, boolean coldStart) {
+        this.name = name;
+        this.coldStart = coldStart;
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public String getName() { return name; }
+    public boolean isColdStart() { return coldStart; }
+
+    /**
+     * Prepares everything the operation needs. Nothing done here is measured.
+     *
+     * @throws Exception if the benchmark can't be set up
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Runs the operation the specified number of times.
+     *
+     * @param ops the number of times to run the operation
+     * @return a value that depends on every operation's result
+     */
+    public abstract long run(int ops);
+
+}
@@ -0,0 +1,399 @@
+package flappybird.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks and reports the time and the memory allocated per
+ * operation, in the same layout as JMH.
+ * <p>
+ * Each benchmark is warmed up for a few iterations that aren't counted, then
+ * measured for several more. Every iteration runs the operation in batches for
+ * a fixed amount of time. The score is the mean time per operation over the
+ * measured iterations, and the error is half the width of its 99.9% confidence
+ * interval. Allocation is counted by the JVM for the benchmark thread, so it
+ * includes everything the operation allocates, down to single bytes, without
+ * waiting for a garbage collection to notice. Memory allocated by other
+ * threads, such as the ones that load resources, isn't counted.
+ * <p>
+ * Cold start benchmarks are run once in each of several fresh JVMs instead,
+ * started with the same options as this one.
+ * <p>
+ * Usage: {@code java flappybird.bench.BenchmarkRunner [options] [regex...]}
+ *
+ * <pre>
+ * -l          list the benchmarks and exit
+ * -wi N       warmup iterations (default 5)
+ * -i N        measured iterations (default 10)
+ * -r MS       length of each iteration in milliseconds (default 500)
+ * -f N        fresh JVMs for each cold start benchmark (default 5)
+ * -csv FILE   also write the results to a CSV file, in nanoseconds and bytes
+ * regex       only run benchmarks whose names contain a match
+ * </pre>
+ *
+ * @author Jiaxuan Wang
+ */
+public class BenchmarkRunner {
+
+    private static final String FORK_ARG = "--fork";
+    private static final String FORK_RESULT = "# fork result ";
+    private static final double Z_999 = 3.291; // two-sided 99.9%, as JMH reports
+    private static final long BATCH_NANOS = 1000000; // each timed call of run is about 1 ms
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private static volatile long sink;
+
+    private int warmupIterations = 5;
+    private int iterations = 10;
+    private long iterationNanos = 500 * 1000000L;
+    private int forks = 5;
+    private File csvFile;
+    private final List<Pattern> filters = new ArrayList<Pattern>();
+
+    /**
+     * Returns every benchmark, in the order they are run.
+     *
+     * @return the benchmarks
+     */
+    public static List<Benchmark> allBenchmarks() {
+        List<Benchmark> all = new ArrayList<Benchmark>();
+        all.addAll(RenderBenchmark.all());
+        all.addAll(ScoreBenchmarks.all());
+        all.addAll(CollisionBenchmarks.all());
+        all.add(new AutopilotBenchmark());
+        all.addAll(GhostBenchmark.all());
+        all.add(new LoadBenchmark());
+        return all;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals(FORK_ARG)) {
+            runFork(find(args[1]));
+            System.exit(0);
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner();
+        boolean list = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-l")) {
+                list = true;
+            } else if (arg.equals("-wi")) {
+                runner.warmupIterations = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-i")) {
+                runner.iterations = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-r")) {
+                runner.iterationNanos = Long.parseLong(args[++i]) * 1000000L;
+            } else if (arg.equals("-f")) {
+                runner.forks = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-csv")) {
+                runner.csvFile = new File(args[++i]);
+            } else if (arg.startsWith("-")) {
+                System.err.println("Unknown option " + arg);
+                System.exit(1);
+            } else {
+                runner.filters.add(Pattern.compile(arg));
+            }
+        }
+
+        List<Benchmark> selected = new ArrayList<Benchmark>();
+        for (Benchmark benchmark : allBenchmarks()) {
+            if (runner.matches(benchmark.getName())) {
+                selected.add(benchmark);
+            }
+        }
+        if (list) {
+            for (Benchmark benchmark : selected) {
+                System.out.println(benchmark.getName());
+            }
+            return;
+        }
+        if (THREADS == null) {
+            System.err.println("This JVM can't count allocated bytes per thread, so allocation won't be reported");
+        }
+
+        List<Result> results = new ArrayList<Result>();
+        for (Benchmark benchmark : selected) {
+            System.out.println("# " + benchmark.getName());
+            Result result = benchmark.isColdStart() ? runner.runForks(benchmark) : runner.runWarm(benchmark);
+            results.add(result);
+        }
+        System.out.println();
+        printTable(results);
+        if (runner.csvFile != null) {
+            writeCsv(results, runner.csvFile);
+        }
+        System.exit(0);
+    }
+
+    private boolean matches(String name) {
+        if (filters.isEmpty()) {
+            return true;
+        }
+        for (Pattern filter : filters) {
+            if (filter.matcher(name).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Benchmark find(String name) {
+        for (Benchmark benchmark : allBenchmarks()) {
+            if (benchmark.getName().equals(name)) {
+                return benchmark;
+            }
+        }
+        throw new IllegalArgumentException("No benchmark named " + name);
+    }
+
+    // Warm benchmarks
+    // -------------------------------------------------------
+
+    private Result runWarm(Benchmark benchmark) throws Exception {
+        benchmark.setUp();
+        int batch = calibrate(benchmark);
+        for (int i = 0; i < warmupIterations; i++) {
+            Sample sample = runIteration(benchmark, batch);
+            System.out.printf(Locale.ROOT, "Warmup %d: %s%n", i + 1, sample);
+        }
+
+        double[] nanosPerOp = new double[iterations];
+        double totalBytes = 0;
+        long totalOps = 0;
+        long gcBefore = gcCount();
+        for (int i = 0; i < iterations; i++) {
+            Sample sample = runIteration(benchmark, batch);
+            System.out.printf(Locale.ROOT, "Iteration %d: %s%n", i + 1, sample);
+            nanosPerOp[i] = (double) sample.nanos / sample.ops;
+            totalBytes += sample.bytes;
+            totalOps += sample.ops;
+        }
+        double bytesPerOp = (THREADS == null) ? Double.NaN : totalBytes / totalOps;
+        return new Result(benchmark.getName(), "avgt", nanosPerOp, bytesPerOp, gcCount() - gcBefore);
+    }
+
+    /**
+     * Finds how many operations take about {@code BATCH_NANOS}, so the clock is
+     * read rarely compared to how often the operation runs.
+     */
+    private static int calibrate(Benchmark benchmark) {
+        int ops = 1;
+        while (true) {
+            long start = System.nanoTime();
+            sink ^= benchmark.run(ops);
+            long nanos = System.nanoTime() - start;
+            if (nanos >= BATCH_NANOS || ops >= (1 << 30)) {
+                return Math.max(1, (int) (ops * (double) BATCH_NANOS / Math.max(nanos, 1)));
+            }
+            ops *= 2;
+        }
+    }
+
+    private Sample runIteration(Benchmark benchmark, int batch) {
+        long threadId = Thread.currentThread().getId();
+        long ops = 0;
+        long nanos = 0;
+        long bytesBefore = allocatedBytes(threadId);
+        while (nanos < iterationNanos) {
+            long start = System.nanoTime();
+            sink ^= benchmark.run(batch);
+            nanos += System.nanoTime() - start;
+            ops += batch;
+        }
+        long bytes = allocatedBytes(threadId) - bytesBefore;
+        return new Sample(ops, nanos, bytes);
+    }
+
+    // Cold start benchmarks
+    // -------------------------------------------------------
+
+    private Result runForks(Benchmark benchmark) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add(FORK_ARG);
+        command.add(benchmark.getName());
+
+        double[] nanos = new double[forks];
+        double totalBytes = 0;
+        long gcs = 0;
+        for (int i = 0; i < forks; i++) {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            String result = null;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(FORK_RESULT)) {
+                        result = line.substring(FORK_RESULT.length());
+                    }
+                }
+            }
+            if (process.waitFor() != 0 || result == null) {
+                throw new IOException("Fork " + (i + 1) + " of " + benchmark.getName() + " failed");
+            }
+            String[] fields = result.split(" ");
+            nanos[i] = Long.parseLong(fields[0]);
+            totalBytes += Long.parseLong(fields[1]);
+            gcs += Long.parseLong(fields[2]);
+            System.out.printf(Locale.ROOT, "Fork %d: %.3f ms%n", i + 1, nanos[i] / 1e6);
+        }
+        double bytesPerOp = (THREADS == null) ? Double.NaN : totalBytes / forks;
+        return new Result(benchmark.getName(), "ss", nanos, bytesPerOp, gcs);
+    }
+
+    /**
+     * Runs one operation of a cold start benchmark in this JVM, and prints the
+     * time for the runner that started it.
+     */
+    private static void runFork(Benchmark benchmark) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        benchmark.setUp();
+        long gcBefore = gcCount();
+        long bytesBefore = allocatedBytes(threadId);
+        long start = System.nanoTime();
+        sink ^= benchmark.run(1);
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes(threadId) - bytesBefore;
+        System.out.println(FORK_RESULT + nanos + " " + bytes + " " + (gcCount() - gcBefore));
+    }
+
+    // Measurement
+    // -------------------------------------------------------
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported()) {
+                counter.setThreadAllocatedMemoryEnabled(true);
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes(long threadId) {
+        return (THREADS == null) ? 0 : THREADS.getThreadAllocatedBytes(threadId);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static class Sample {
+        final long ops;
+        final long nanos;
+        final long bytes;
+
+        Sample(long ops, long nanos, long bytes) {
+            this.ops = ops;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        public String toString() {
+            double nanosPerOp = (double) nanos / ops;
+            return String.format(Locale.ROOT, "%s, %.1f B/op", formatTime(nanosPerOp), (double) bytes / ops);
+        }
+    }
+
+    // Reporting
+    // -------------------------------------------------------
+
+    private static class Result {
+        final String name;
+        final String mode;
+        final double mean;
+        final double error;
+        final int count;
+        final double bytesPerOp;
+        final long gcs;
+
+        Result(String name, String mode, double[] nanos, double bytesPerOp, long gcs) {
+            this.name = name;
+            this.mode = mode;
+            this.count = nanos.length;
+            this.bytesPerOp = bytesPerOp;
+            this.gcs = gcs;
+            double sum = 0;
+            for (double n : nanos) {
+                sum += n;
+            }
+            mean = sum / count;
+            double squares = 0;
+            for (double n : nanos) {
+                squares += (n - mean) * (n - mean);
+            }
+            error = (count > 1) ? Z_999 * Math.sqrt(squares / (count - 1)) / Math.sqrt(count) : Double.NaN;
+        }
+    }
+
+    private static void printTable(List<Result> results) {
+        int nameWidth = "Benchmark".length();
+        for (Result result : results) {
+            nameWidth = Math.max(nameWidth, result.name.length());
+        }
+        String header = "%-" + nameWidth + "s  %4s  %3s  %12s    %10s  %-5s  %12s  %5s%n";
+        String row = "%-" + nameWidth + "s  %4s  %3d  %12.3f +- %10.3f  %-5s  %12.1f  %5d%n";
+        System.out.printf(Locale.ROOT, header, "Benchmark", "Mode", "Cnt", "Score", "Error", "Units", "Alloc B/op",
+                "GCs");
+        for (Result result : results) {
+            double scale = unitScale(result.mean);
+            System.out.printf(Locale.ROOT, row, result.name, result.mode, result.count, result.mean / scale,
+                    result.error / scale, unitName(scale), result.bytesPerOp, result.gcs);
+        }
+    }
+
+    private static void writeCsv(List<Result> results, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("benchmark,mode,count,ns_per_op,error_ns,bytes_per_op,gcs");
+            for (Result result : results) {
+                out.printf(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.1f,%d%n", result.name, result.mode, result.count,
+                        result.mean, result.error, result.bytesPerOp, result.gcs);
+            }
+        }
+        System.out.println("Results written to " + file);
+    }
+
+    private static String formatTime(double nanos) {
+        double scale = unitScale(nanos);
+        return String.format(Locale.ROOT, "%.3f %s", nanos / scale, unitName(scale));
+    }
+
+    private static double unitScale(double nanos) {
+        if (nanos >= 1e6) {
+            return 1e6;
+        } else if (nanos >= 1e3) {
+            return 1e3;
+        }
+        return 1;
+    }
+
+    private static String unitName(double scale) {
+        if (scale == 1e6) {
+            return "ms/op";
+        } else if (scale == 1e3) {
+            return "us/op";
+        }
+        return "ns/op";
+    }
+
+}
@@ -0,0 +1,115 @@
+package flappybird.bench;
+
+import flappybird.Bird;
+import flappybird.Collision;
+import flappybird.Pipe;
+import flappybird.PipeRing;
+import flappybird.World;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the collision checks the world makes every tick.
+ * <p>
+ * The bird is checked against every pipe of a world in the middle of a game,
+ * the way {@code World.step} does it. The box tests run over a table of random
+ * boxes, so the JIT can't work the answers out ahead of time. The
+ * {@code Rectangle} benchmark is the check the game used to make, with a new
+ * {@code Rectangle} for each box, to compare against.
+ *
+ * @author Jiaxuan Wang
+ */
+public class CollisionBenchmarks {
+
+    private static final int BOXES = 1024; // a power of two
+    private static final long SEED = 42;
+
+    private CollisionBenchmarks() {
+    }
+
+    /**
+     * Returns the collision benchmarks.
+     *
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> all = new ArrayList<Benchmark>();
+        all.add(new BirdPipes());
+        all.add(new Boxes(false));
+        all.add(new Boxes(true));
+        return all;
+    }
+
+    private static class BirdPipes extends Benchmark {
+        private Bird bird;
+        private PipeRing pipes;
+
+        BirdPipes() {
+            super("collision.bird.pipes");
+        }
+
+        public void setUp() {
+            World world = new World(0, SEED);
+            RenderBenchmark.advance(world, World.PLAYING);
+            bird = world.getBird();
+            pipes = world.getPipes();
+        }
+
+        public long run(int ops) {
+            long hits = 0;
+            for (int i = 0; i < ops; i++) {
+                for (int j = 0; j < pipes.size(); j++) {
+                    Pipe pipe = pipes.get(j);
+                    if (bird.intersects(pipe)) {
+                        hits++;
+                    }
+                }
+            }
+            return hits;
+        }
+    }
+
+    private static class Boxes extends Benchmark {
+        private final boolean rectangles;
+        private final int[] boxes = new int[BOXES * 4];
+
+        Boxes(boolean rectangles) {
+            super(rectangles ? "collision.boxes.rectangle" : "collision.boxes.primitive");
+            this.rectangles = rectangles;
+        }
+
+        public void setUp() {
+            Random random = new Random(SEED);
+            for (int i = 0; i < boxes.length; i += 4) {
+                boxes[i] = random.nextInt(500);
+                boxes[i + 1] = random.nextInt(700);
+                boxes[i + 2] = random.nextInt(100);
+                boxes[i + 3] = random.nextInt(100);
+            }
+        }
+
+        public long run(int ops) {
+            long hits = 0;
+            int mask = BOXES - 1;
+            for (int i = 0; i < ops; i++) {
+                int a = (i & mask) * 4;
+                int b = ((i * 7 + 1) & mask) * 4;
+                boolean hit;
+                if (rectangles) {
+                    hit = new Rectangle(boxes[a], boxes[a + 1], boxes[a + 2], boxes[a + 3])
+                            .intersects(new Rectangle(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]));
+                } else {
+                    hit = Collision.intersects(boxes[a], boxes[a + 1], boxes[a + 2], boxes[a + 3],
+                            boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]);
+                }
+                if (hit) {
+                    hits++;
+                }
+            }
+            return hits;
+        }
+    }
+
+}
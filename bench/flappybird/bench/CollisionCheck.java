@@ -0,0 +1,156 @@
+package flappybird.bench;
+
+import flappybird.Bird;
+import flappybird.Collision;
+import flappybird.Fireball;
+import flappybird.Mario;
+import flappybird.Pipe;
+import java.awt.Rectangle;
+import java.util.Random;
+
+/**
+ * Checks that the collision tests give the same answers as the
+ * {@code Rectangle} checks the game used to make.
+ * <p>
+ * {@link Collision#intersects} is compared with {@code Rectangle.intersects}
+ * on random boxes, on boxes near each other where the edges just touch, and on
+ * empty boxes and boxes at the ends of the {@code int} range, whose far edges
+ * overflow. The bird's tests against pipes, fireballs and Mario are compared
+ * with {@code getBounds().intersects(...)} on the bounds of each, with the
+ * bird and the other one placed at random, mostly close enough to touch.
+ * <p>
+ * Run with {@code ant collision-check}. The check exits with status 1 and
+ * prints the first few differences if there are any.
+ *
+ * @author Jiaxuan Wang
+ */
+public class CollisionCheck {
+
+    private static final long SEED = 42;
+    private static final int RANDOM_CASES = 2000000;
+    private static final int ENTITY_CASES = 200000;
+    private static final int MAX_REPORTED = 10;
+
+    private static final int[] EDGE_VALUES = { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1000, -1, 0, 1, 2, 1000,
+            Integer.MAX_VALUE - 1000, Integer.MAX_VALUE - 1, Integer.MAX_VALUE };
+
+    private final Random random = new Random(SEED);
+    private long cases;
+    private long differences;
+
+    private CollisionCheck() {
+    }
+
+    /**
+     * Runs every check.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        CollisionCheck check = new CollisionCheck();
+        check.checkRandomBoxes();
+        check.checkEdgeBoxes();
+        check.checkBirdPipes();
+        check.checkBirdFireballs();
+        check.checkBirdMario();
+        System.out.println(check.cases + " cases checked, " + check.differences + " differences");
+        if (check.differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void checkRandomBoxes() {
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            // Small coordinates, so the boxes overlap, touch and miss about as often
+            checkBoxes(random.nextInt(64) - 16, random.nextInt(64) - 16, random.nextInt(40) - 4,
+                    random.nextInt(40) - 4, random.nextInt(64) - 16, random.nextInt(64) - 16,
+                    random.nextInt(40) - 4, random.nextInt(40) - 4);
+        }
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            checkBoxes(random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt(),
+                    random.nextInt(), random.nextInt(), random.nextInt());
+        }
+    }
+
+    private void checkEdgeBoxes() {
+        int n = EDGE_VALUES.length;
+        // Every combination for the first box against a few second boxes, and
+        // the other way around
+        for (int ax : EDGE_VALUES) {
+            for (int ay : EDGE_VALUES) {
+                for (int aw : EDGE_VALUES) {
+                    for (int ah : EDGE_VALUES) {
+                        for (int k = 0; k < 8; k++) {
+                            int bx = EDGE_VALUES[random.nextInt(n)];
+                            int by = EDGE_VALUES[random.nextInt(n)];
+                            int bw = EDGE_VALUES[random.nextInt(n)];
+                            int bh = EDGE_VALUES[random.nextInt(n)];
+                            checkBoxes(ax, ay, aw, ah, bx, by, bw, bh);
+                            checkBoxes(bx, by, bw, bh, ax, ay, aw, ah);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkBoxes(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        boolean expected = new Rectangle(ax, ay, aw, ah).intersects(new Rectangle(bx, by, bw, bh));
+        boolean actual = Collision.intersects(ax, ay, aw, ah, bx, by, bw, bh);
+        record(expected, actual, "boxes " + ax + "," + ay + "," + aw + "," + ah + " and " + bx + "," + by + ","
+                + bw + "," + bh);
+    }
+
+    private void checkBirdPipes() {
+        Bird bird = new Bird();
+        for (int i = 0; i < ENTITY_CASES; i++) {
+            // A pipe starts 200 pixels off the right of the screen width it is given
+            Pipe pipe = new Pipe(random.nextInt(400) - 300, 0, random.nextInt(600) - 450);
+            bird.setX(random.nextInt(300) - 50);
+            bird.setY(random.nextInt(800) - 100);
+            boolean expected = bird.getBounds().intersects(pipe.getUpperBound())
+                    || bird.getBounds().intersects(pipe.getLowerBound());
+            record(expected, bird.intersects(pipe), "bird " + bird.getBounds() + " and pipe "
+                    + pipe.getUpperBound() + " " + pipe.getLowerBound());
+        }
+    }
+
+    private void checkBirdFireballs() {
+        Bird bird = new Bird();
+        for (int i = 0; i < ENTITY_CASES; i++) {
+            Fireball fireball = new Fireball(random.nextInt(200) + random.nextDouble(),
+                    random.nextInt(200) + random.nextDouble(), 0, 0);
+            bird.setX(random.nextInt(200));
+            bird.setY(random.nextInt(200));
+            record(bird.getBounds().intersects(fireball.getBounds()), bird.intersects(fireball),
+                    "bird " + bird.getBounds() + " and fireball " + fireball.getBounds());
+        }
+    }
+
+    private void checkBirdMario() {
+        Bird bird = new Bird();
+        Mario mario = new Mario();
+        for (int i = 0; i < ENTITY_CASES; i++) {
+            // Mario comes out of the bottom of a pipe, and moves on from there
+            mario.start(new Pipe(random.nextInt(400) - 300, 0, random.nextInt(600) - 450));
+            for (int steps = random.nextInt(40); steps > 0; steps--) {
+                mario.update();
+            }
+            bird.setX(mario.getX() + random.nextInt(160) - 80);
+            bird.setY(mario.getY() + random.nextInt(160) - 80);
+            record(bird.getBounds().intersects(mario.getBounds()), bird.intersects(mario),
+                    "bird " + bird.getBounds() + " and Mario " + mario.getBounds());
+        }
+    }
+
+    private void record(boolean expected, boolean actual, String description) {
+        cases++;
+        if (expected != actual) {
+            differences++;
+            if (differences <= MAX_REPORTED) {
+                System.out.println("Rectangle says " + expected + ", Collision says " + actual + ": " + description);
+            }
+        }
+    }
+
+}
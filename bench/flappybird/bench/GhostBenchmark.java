@@ -0,0 +1,106 @@
+package flappybird.bench;
+
+import flappybird.Autopilot;
+import flappybird.Bird;
+import flappybird.GhostRace;
+import flappybird.Resources;
+import flappybird.Sprite;
+import flappybird.World;
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Draws a thousand ghosts over the same frame, a few hundred ticks into their
+ * games when all of them are still flying.
+ * <p>
+ * The ghosts are games played by the autopilot on different courses, so they
+ * are spread over the screen the way real ones are. The batched benchmark is
+ * {@code GhostRace.draw}; the naive one draws each ghost on its own, setting
+ * a translucent composite and drawing its bird's sprite, to compare against.
+ *
+ * @author Jiaxuan Wang
+ */
+public class GhostBenchmark extends Benchmark {
+
+    private static final int GHOSTS = 1000;
+    private static final int TICKS = 400;
+    private static final long SEED = 42;
+
+    private final boolean batched;
+    private GhostRace race;
+    private BufferedImage frame;
+    private Graphics2D g;
+
+    GhostBenchmark(boolean batched) {
+        super(batched ? "ghosts.1000.batched" : "ghosts.1000.naive");
+        this.batched = batched;
+    }
+
+    /**
+     * Returns the batched and the naive benchmark.
+     *
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> all = new ArrayList<Benchmark>();
+        all.add(new GhostBenchmark(true));
+        all.add(new GhostBenchmark(false));
+        return all;
+    }
+
+    public void setUp() {
+        new Resources().load();
+        race = new GhostRace();
+        Random random = new Random(SEED);
+        short[] track = new short[TICKS];
+        for (int i = 0; i < GHOSTS; i++) {
+            World world = new World(0, random.nextLong());
+            Autopilot autopilot = new Autopilot();
+            world.step(World.FLAP);
+            for (int t = 0; t < TICKS; t++) {
+                world.step(autopilot.decide(world));
+                track[t] = (short) world.getBird().getY();
+            }
+            race.add(track, TICKS, world.getBird().getColor());
+        }
+        frame = new BufferedImage(World.WIDTH, 700, BufferedImage.TYPE_INT_RGB);
+        g = frame.createGraphics();
+    }
+
+    public long run(int ops) {
+        long drawn = 0;
+        for (int i = 0; i < ops; i++) {
+            int ticks = TICKS - 10 + (i & 7);
+            if (batched) {
+                drawn += race.draw(g, 120, ticks, 0.5, null);
+            } else {
+                drawn += drawNaively(ticks);
+            }
+        }
+        return drawn + frame.getRGB(130, 300);
+    }
+
+    private int drawNaively(int ticks) {
+        Composite composite = g.getComposite();
+        int frameIndex = ((ticks - 1) / 7) % Bird.FRAME_COUNT;
+        for (int i = 0; i < race.size(); i++) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, GhostRace.GHOST_ALPHA));
+            Sprite sprite = Resources.getSprite(spriteName(race.getColor(i), frameIndex));
+            sprite.draw(g, 120, race.getY(i, ticks - 1), null);
+        }
+        g.setComposite(composite);
+        return race.size();
+    }
+
+    private static String spriteName(int color, int frame) {
+        String[] colors = { "yellow", "blue", "red" };
+        int[] numbers = { 1, 2, 1, 3 };
+        return "bird_" + colors[color] + "_" + numbers[frame];
+    }
+
+}
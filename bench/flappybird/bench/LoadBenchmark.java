@@ -0,0 +1,26 @@
+package flappybird.bench;
+
+import flappybird.Resources;
+
+/**
+ * Measures loading every image, sound and font in a JVM that has just started,
+ * as when the game is launched.
+ *
+ * @author Jiaxuan Wang
+ */
+public class LoadBenchmark extends Benchmark {
+
+    public LoadBenchmark() {
+        super("resources.load.cold", true);
+    }
+
+    public long run(int ops) {
+        long sprites = 0;
+        for (int i = 0; i < ops; i++) {
+            new Resources().load();
+            sprites += Resources.getSprite("backdrop").getWidth();
+        }
+        return sprites;
+    }
+
+}
@@ -0,0 +1,290 @@
+package flappybird.bench;
+
+import flappybird.SoundMixer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Checks the arithmetic of {@link SoundMixer}: that voices are added up
+ * sample by sample, that the sum is clipped to 16 bits, that sounds start on
+ * the buffer after they are played, and that decoding applies the gain and
+ * spreads mono over both channels.
+ * <p>
+ * Random sounds, some loud enough to clip when they overlap, are played at
+ * random buffers and mixed by hand into a {@code RecordingSink}. What was
+ * recorded is compared with a plain sum of every play, clipped, worked out
+ * here separately. A few fixed cases cover taking over the oldest voice when
+ * they are all playing, a full trigger queue, and a sink that can't be opened.
+ * <p>
+ * Run with {@code ant mix-check}. The check exits with status 1 and prints
+ * the first few differences if there are any.
+ *
+ * @author Jiaxuan Wang
+ */
+public class MixCheck {
+
+    private static final long SEED = 42;
+    private static final int BUFFER_FRAMES = 256;
+    private static final int BUFFER_SAMPLES = BUFFER_FRAMES * SoundMixer.CHANNELS;
+    private static final int ROUNDS = 20;
+    private static final int BUFFERS = 400;
+    private static final int SOUNDS = 12;
+    private static final int MAX_PLAYING = 8; // fewer than the voices, so none is taken over
+    private static final int VOICES = 16;
+    private static final int MAX_REPORTED = 10;
+
+    private final Random random = new Random(SEED);
+    private long cases;
+    private long differences;
+
+    private MixCheck() {
+    }
+
+    /**
+     * Runs every check.
+     *
+     * @param args ignored
+     * @throws Exception if a sound can't be written or decoded
+     */
+    public static void main(String[] args) throws Exception {
+        MixCheck check = new MixCheck();
+        for (int round = 0; round < ROUNDS; round++) {
+            check.checkRandomMix(round);
+        }
+        check.checkClipping();
+        check.checkVoiceTakeover();
+        check.checkFullQueue();
+        check.checkDecode();
+        check.checkFailedSink();
+        System.out.println(check.cases + " cases checked, " + check.differences + " differences");
+        if (check.differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void checkRandomMix(int round) {
+        SoundMixer.RecordingSink sink = new SoundMixer.RecordingSink();
+        SoundMixer mixer = new SoundMixer(sink, BUFFER_FRAMES, VOICES);
+        short[][] sounds = new short[SOUNDS][];
+        for (int s = 0; s < SOUNDS; s++) {
+            // Some sounds are loud, so that a few of them together clip
+            int amplitude = random.nextBoolean() ? 4000 : 30000;
+            short[] samples = new short[(random.nextInt(BUFFER_FRAMES * 6) + 1) * SoundMixer.CHANNELS];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) (random.nextInt(2 * amplitude + 1) - amplitude);
+            }
+            sounds[s] = samples;
+            mixer.add(samples);
+        }
+
+        long[] expected = new long[BUFFERS * BUFFER_SAMPLES];
+        int[] playingUntil = new int[MAX_PLAYING]; // the buffer each of the last few plays ends on
+        for (int buffer = 0; buffer < BUFFERS; buffer++) {
+            int plays = random.nextInt(8) == 0 ? random.nextInt(3) + 1 : 0;
+            for (int p = 0; p < plays; p++) {
+                int free = -1;
+                for (int k = 0; k < MAX_PLAYING; k++) {
+                    if (playingUntil[k] <= buffer) {
+                        free = k;
+                    }
+                }
+                if (free < 0) {
+                    break;
+                }
+                int sound = random.nextInt(SOUNDS);
+                mixer.play(sound);
+                short[] samples = sounds[sound];
+                int start = buffer * BUFFER_SAMPLES;
+                for (int i = 0; i < samples.length && start + i < expected.length; i++) {
+                    expected[start + i] += samples[i];
+                }
+                playingUntil[free] = buffer + (samples.length + BUFFER_SAMPLES - 1) / BUFFER_SAMPLES;
+            }
+            mixer.mix();
+        }
+        compare(expected, sink.getSamples(), "random mix " + round);
+    }
+
+    private void checkClipping() {
+        SoundMixer.RecordingSink sink = new SoundMixer.RecordingSink();
+        SoundMixer mixer = new SoundMixer(sink, BUFFER_FRAMES, VOICES);
+        short[] high = filled(BUFFER_SAMPLES, Short.MAX_VALUE);
+        short[] low = filled(BUFFER_SAMPLES, Short.MIN_VALUE);
+        short[] one = filled(BUFFER_SAMPLES, (short) 1);
+        int h = mixer.add(high);
+        int l = mixer.add(low);
+        int o = mixer.add(one);
+
+        long[] expected = new long[4 * BUFFER_SAMPLES];
+        // Twice the highest sample
+        play(mixer, h, high, expected, 0);
+        play(mixer, h, high, expected, 0);
+        mixer.mix();
+        // Three times the lowest
+        play(mixer, l, low, expected, 1);
+        play(mixer, l, low, expected, 1);
+        play(mixer, l, low, expected, 1);
+        mixer.mix();
+        // The highest and the lowest come to -1, and one more to 0
+        play(mixer, h, high, expected, 2);
+        play(mixer, l, low, expected, 2);
+        play(mixer, o, one, expected, 2);
+        mixer.mix();
+        // Just over the top
+        play(mixer, h, high, expected, 3);
+        play(mixer, o, one, expected, 3);
+        mixer.mix();
+        compare(expected, sink.getSamples(), "clipping");
+    }
+
+    private static void play(SoundMixer mixer, int sound, short[] samples, long[] expected, int buffer) {
+        mixer.play(sound);
+        for (int i = 0; i < samples.length; i++) {
+            expected[buffer * BUFFER_SAMPLES + i] += samples[i];
+        }
+    }
+
+    private void checkVoiceTakeover() {
+        // With two voices, a third sound takes over the one that has played the longest
+        SoundMixer.RecordingSink sink = new SoundMixer.RecordingSink();
+        SoundMixer mixer = new SoundMixer(sink, BUFFER_FRAMES, 2);
+        short[] a = filled(BUFFER_SAMPLES * 4, (short) 100);
+        short[] b = filled(BUFFER_SAMPLES * 4, (short) 10);
+        short[] c = filled(BUFFER_SAMPLES * 4, (short) 1);
+        mixer.play(mixer.add(a));
+        mixer.mix();
+        mixer.play(mixer.add(b));
+        mixer.mix();
+        mixer.play(mixer.add(c));
+        mixer.mix();
+        mixer.mix();
+
+        long[] expected = new long[4 * BUFFER_SAMPLES];
+        long[] perBuffer = { 100, 110, 11, 11 };
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = perBuffer[i / BUFFER_SAMPLES];
+        }
+        compare(expected, sink.getSamples(), "voice takeover");
+    }
+
+    private void checkFullQueue() {
+        SoundMixer mixer = new SoundMixer(new SoundMixer.RecordingSink(), BUFFER_FRAMES, VOICES);
+        int sound = mixer.add(new short[SoundMixer.CHANNELS]);
+        int queued = 0;
+        while (queued < 10000 && mixer.play(sound)) {
+            queued++;
+        }
+        record(256, queued, "sounds queued before the queue is full");
+        mixer.mix();
+        record(1, mixer.play(sound) ? 1 : 0, "queued after the queue was emptied");
+    }
+
+    private void checkDecode() throws IOException, UnsupportedAudioFileException {
+        // Stereo at the mixer's rate and no gain decodes to the same samples
+        short[] stereo = new short[2000];
+        for (int i = 0; i < stereo.length; i++) {
+            stereo[i] = (short) (random.nextInt(65536) - 32768);
+        }
+        short[] decoded = SoundMixer.decode(writeWav(stereo, 2).toURI().toURL(), 0);
+        compare(toLongs(stereo), decoded, "decode stereo");
+
+        // Mono is spread over both channels, and -6.02 dB halves every sample
+        short[] mono = new short[1000];
+        for (int i = 0; i < mono.length; i++) {
+            mono[i] = (short) (random.nextInt(65536) - 32768);
+        }
+        float half = (float) (20 * Math.log10(0.5));
+        decoded = SoundMixer.decode(writeWav(mono, 1).toURI().toURL(), half);
+        long[] expected = new long[mono.length * 2];
+        double scale = Math.pow(10, half / 20.0);
+        for (int i = 0; i < mono.length; i++) {
+            expected[2 * i] = Math.round(mono[i] * scale);
+            expected[2 * i + 1] = expected[2 * i];
+        }
+        compare(expected, decoded, "decode mono at half gain");
+    }
+
+    private void checkFailedSink() throws InterruptedException {
+        // A sink that can't be opened leaves the mixer running on a NullSink
+        final boolean[] wrote = new boolean[1];
+        SoundMixer mixer = new SoundMixer(new SoundMixer.Sink() {
+            public void open(AudioFormat format, int bufferBytes) throws LineUnavailableException {
+                throw new IllegalArgumentException("no such line");
+            }
+
+            public void write(byte[] data, int offset, int length) {
+                wrote[0] = true;
+            }
+
+            public void close() {}
+        }, BUFFER_FRAMES, VOICES);
+        mixer.start();
+        Thread.sleep(50);
+        mixer.stop();
+        record(0, wrote[0] ? 1 : 0, "writes to a sink that couldn't be opened");
+        boolean stopped = true;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("SoundMixer")) {
+                stopped = false;
+            }
+        }
+        record(1, stopped ? 1 : 0, "mixer thread stopped");
+    }
+
+    private static File writeWav(short[] samples, int channels) throws IOException {
+        byte[] bytes = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            bytes[2 * i] = (byte) samples[i];
+            bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        AudioFormat format = new AudioFormat(SoundMixer.SAMPLE_RATE, 16, channels, true, false);
+        File file = File.createTempFile("mixcheck", ".wav");
+        file.deleteOnExit();
+        AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(bytes), format,
+                samples.length / channels);
+        AudioSystem.write(in, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+    private static short[] filled(int length, short value) {
+        short[] samples = new short[length];
+        Arrays.fill(samples, value);
+        return samples;
+    }
+
+    private static long[] toLongs(short[] samples) {
+        long[] longs = new long[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            longs[i] = samples[i];
+        }
+        return longs;
+    }
+
+    private void compare(long[] sums, short[] actual, String description) {
+        record(sums.length, actual.length, description + ", number of samples");
+        for (int i = 0; i < Math.min(sums.length, actual.length); i++) {
+            long expected = Math.max(Short.MIN_VALUE, Math.min(sums[i], Short.MAX_VALUE));
+            record(expected, actual[i], description + ", sample " + i);
+        }
+    }
+
+    private void record(long expected, long actual, String description) {
+        cases++;
+        if (expected != actual) {
+            differences++;
+            if (differences <= MAX_REPORTED) {
+                System.out.println("Expected " + expected + ", mixed " + actual + ": " + description);
+            }
+        }
+    }
+
+}
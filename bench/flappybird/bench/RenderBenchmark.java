@@ -0,0 +1,168 @@
+package flappybird.bench;
+
+import flappybird.Bird;
+import flappybird.FlappyBirdGame;
+import flappybird.Pipe;
+import flappybird.PipeRing;
+import flappybird.Replay;
+import flappybird.World;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws whole frames of the game into an offscreen image, for one mode of the
+ * world and one set of graphics.
+ * <p>
+ * The game plays back an empty replay with a fixed seed, and the world is
+ * brought into the mode by a simple autopilot, so every run draws exactly the
+ * same frame. Only drawing is measured; the world isn't stepped while the
+ * frame is drawn over and over. A few are drawn scaled up, the way the game
+ * fills a large screen, into an image of the scaled size.
+ *
+ * @author Jiaxuan Wang
+ */
+public class RenderBenchmark extends Benchmark {
+
+    private static final long SEED = 42;
+    private static final int MAX_TICKS = 100000;
+    private static final String[] MODE_NAMES = { "READY", "PLAYING", "CRASHED", "MARIO" };
+
+    private final int mode;
+    private final boolean newGraphics;
+    private final double scale;
+    private FlappyBirdGame game;
+    private BufferedImage frame;
+    private Graphics2D g;
+
+    /**
+     * Constructs a {@code RenderBenchmark}.
+     *
+     * @param mode        the mode of the world, such as {@code World.PLAYING}
+     * @param newGraphics whether to draw the new graphics
+     */
+    public RenderBenchmark(int mode, boolean newGraphics) {
+        this(mode, newGraphics, 1, "");
+    }
+
+    /**
+     * Constructs a {@code RenderBenchmark} that draws the frame scaled.
+     *
+     * @param mode        the mode of the world, such as {@code World.PLAYING}
+     * @param newGraphics whether to draw the new graphics
+     * @param scale       how many pixels of the image there are to each pixel
+     *                    of the game
+     * @param suffix      the end of the benchmark's name, for the scale
+     */
+    public RenderBenchmark(int mode, boolean newGraphics, double scale, String suffix) {
+        super("render." + MODE_NAMES[mode] + (newGraphics ? ".new" : ".old") + suffix);
+        this.mode = mode;
+        this.newGraphics = newGraphics;
+        this.scale = scale;
+    }
+
+    /**
+     * Returns a benchmark for every mode with each set of graphics.
+     *
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> all = new ArrayList<Benchmark>();
+        int[] modes = { World.READY, World.PLAYING, World.MARIO, World.CRASHED };
+        for (int mode : modes) {
+            all.add(new RenderBenchmark(mode, false));
+            all.add(new RenderBenchmark(mode, true));
+        }
+        all.add(new RenderBenchmark(World.PLAYING, true, 1080.0 / FlappyBirdGame.FRAME_HEIGHT, ".1080p"));
+        all.add(new RenderBenchmark(World.PLAYING, true, 2160.0 / FlappyBirdGame.FRAME_HEIGHT, ".2160p"));
+        return all;
+    }
+
+    public void setUp() {
+        game = new FlappyBirdGame(new Replay(new World(0, SEED)));
+        game.awaitLoaded();
+        game.interpolation = 0.5;
+        World world = game.getWorld();
+        world.setNewGraphicsEnabled(newGraphics);
+        advance(world, mode);
+
+        Dimension size = game.getPreferredSize();
+        frame = new BufferedImage((int) Math.ceil(size.width * scale), (int) Math.ceil(size.height * scale),
+                BufferedImage.TYPE_INT_RGB);
+        g = frame.createGraphics();
+        g.scale(scale, scale);
+    }
+
+    public long run(int ops) {
+        for (int i = 0; i < ops; i++) {
+            game.drawWorld(g);
+        }
+        return frame.getRGB(ops % frame.getWidth(), frame.getHeight() / 2);
+    }
+
+    /**
+     * Steps a world until it is in the specified mode, in a state worth drawing:
+     * pipes on the screen while playing, Mario throwing fireballs, and the bird
+     * on the ground with the score board up after a crash.
+     */
+    static void advance(World world, int mode) {
+        int ticks = 0;
+        switch (mode) {
+            case World.READY:
+                while (ticks++ < 40) {
+                    world.step(0);
+                }
+                return;
+            case World.PLAYING:
+            case World.CRASHED:
+                while (world.getMode() != World.PLAYING || world.getScore() < 3) {
+                    step(world, ticks++);
+                }
+                if (mode == World.CRASHED) {
+                    world.crash();
+                    for (int i = 0; i < 60; i++) {
+                        world.step(0);
+                    }
+                }
+                return;
+            case World.MARIO:
+                while (world.getMode() != World.MARIO || world.getFireballs().isEmpty()) {
+                    step(world, ticks++);
+                }
+                return;
+            default:
+                throw new IllegalArgumentException("No such mode: " + mode);
+        }
+    }
+
+    private static void step(World world, int ticks) {
+        if (ticks > MAX_TICKS) {
+            throw new IllegalStateException("The autopilot couldn't reach the mode in " + MAX_TICKS + " ticks");
+        }
+        world.step(autopilot(world));
+    }
+
+    /**
+     * Flaps whenever the bird is below the middle of the gap in the next pipe,
+     * and restarts after a crash.
+     */
+    private static int autopilot(World world) {
+        if (world.getMode() == World.CRASHED) {
+            return World.RESTART;
+        }
+        Bird bird = world.getBird();
+        PipeRing pipes = world.getPipes();
+        int target = 300;
+        for (int i = 0; i < pipes.size(); i++) {
+            Pipe pipe = pipes.get(i);
+            if (pipe.getX() + pipe.getWidth() > bird.getX()) {
+                target = pipe.getLowerY() - 80;
+                break;
+            }
+        }
+        return (world.getMode() == World.READY || bird.getY() > target) ? World.FLAP : 0;
+    }
+
+}
@@ -0,0 +1,137 @@
+package flappybird.bench;
+
+import flappybird.Resources;
+import flappybird.ScoreRenderer;
+import flappybird.Sprite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long scores take to lay out and to draw, for scores of every
+ * size from one digit to the largest {@code int}.
+ * <p>
+ * These use {@code ScoreRenderer} directly, which is all that
+ * {@code FlappyBirdGame.getScoreImgLen} and {@code drawScore} do. A score that
+ * stays the same is drawn from the cache, as it is on almost every frame. The
+ * counting benchmark draws a different score every time, more than the cache
+ * holds, so every draw composites a new image, as when the score changes.
+ *
+ * @author Jiaxuan Wang
+ */
+public class ScoreBenchmarks {
+
+    private static final int[] SCORES = { 0, 7, 42, 999, 12345, Integer.MAX_VALUE };
+    private static final int BIG_NUM_OVERLAP = 5; // as in FlappyBirdGame
+
+    private static Sprite[] bigNums;
+
+    private ScoreBenchmarks() {
+    }
+
+    /**
+     * Returns the score benchmarks.
+     *
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> all = new ArrayList<Benchmark>();
+        for (int score : SCORES) {
+            all.add(new Width(score));
+        }
+        for (int score : SCORES) {
+            all.add(new Draw(score));
+        }
+        all.add(new DrawCounting());
+        return all;
+    }
+
+    private static synchronized Sprite[] bigNums() {
+        if (bigNums == null) {
+            new Resources().load();
+            bigNums = new Sprite[10];
+            for (int i = 0; i <= 9; i++) {
+                bigNums[i] = Resources.getSprite("font_big_" + i);
+            }
+        }
+        return bigNums;
+    }
+
+    private static class Width extends Benchmark {
+        private final int score;
+        private Sprite[] nums;
+
+        Width(int score) {
+            super("score.width." + score);
+            this.score = score;
+        }
+
+        public void setUp() {
+            nums = bigNums();
+        }
+
+        public long run(int ops) {
+            long total = 0;
+            for (int i = 0; i < ops; i++) {
+                total += ScoreRenderer.getWidth(score, nums, BIG_NUM_OVERLAP);
+            }
+            return total;
+        }
+    }
+
+    private static class Draw extends Benchmark {
+        private final int score;
+        private Sprite[] nums;
+        private ScoreRenderer renderer;
+        private BufferedImage frame;
+        private Graphics2D g;
+
+        Draw(int score) {
+            super("score.draw." + score);
+            this.score = score;
+        }
+
+        public void setUp() {
+            nums = bigNums();
+            renderer = new ScoreRenderer(32);
+            frame = new BufferedImage(500, 120, BufferedImage.TYPE_INT_RGB);
+            g = frame.createGraphics();
+        }
+
+        public long run(int ops) {
+            for (int i = 0; i < ops; i++) {
+                renderer.draw(score, 10, 10, nums, BIG_NUM_OVERLAP, g, null);
+            }
+            return frame.getRGB(20, 20);
+        }
+    }
+
+    private static class DrawCounting extends Benchmark {
+        private Sprite[] nums;
+        private ScoreRenderer renderer;
+        private BufferedImage frame;
+        private Graphics2D g;
+        private int score;
+
+        DrawCounting() {
+            super("score.draw.counting");
+        }
+
+        public void setUp() {
+            nums = bigNums();
+            renderer = new ScoreRenderer(32);
+            frame = new BufferedImage(500, 120, BufferedImage.TYPE_INT_RGB);
+            g = frame.createGraphics();
+        }
+
+        public long run(int ops) {
+            for (int i = 0; i < ops; i++) {
+                score = (score + 1) % 1000;
+                renderer.draw(score, 10, 10, nums, BIG_NUM_OVERLAP, g, null);
+            }
+            return frame.getRGB(20, 20);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package flappybird;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A frame hitch, as a Java Flight Recorder event.
+ * <p>
+ * This is the only class that uses {@code jdk.jfr}. It lives in its own source
+ * root, which the build only compiles when the JDK has Flight Recorder, and
+ * {@link HitchEvents} finds it by name, so the rest of the game builds and
+ * runs without it.
+ *
+ * @author Jiaxuan Wang
+ */
+@Name("flappybird.Hitch")
+@Label("Frame Hitch")
+@Category("Flappy Bird")
+@Description("A frame that took longer than the frame budget")
+final class HitchEvent extends Event {
+
+    @Label("Time Since Last Frame")
+    @Timespan(Timespan.NANOSECONDS)
+    long interval;
+
+    @Label("Render Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long render;
+
+    @Label("Ticks")
+    int ticks;
+
+    @Label("Mode")
+    int mode;
+
+    @Label("Garbage Collections")
+    long gcCount;
+
+    @Label("Garbage Collection Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long gcTime;
+
+    /**
+     * Commits a hitch event, if Flight Recorder is recording it.
+     *
+     * @param intervalNanos the time since the last frame
+     * @param renderNanos   the time taken to draw the frame
+     * @param ticks         the ticks run before the frame
+     * @param mode          the mode of the world
+     * @param gcCount       the garbage collections since the last frame
+     * @param gcMillis      the time spent collecting since the last frame
+     */
+    static void commit(long intervalNanos, long renderNanos, int ticks, int mode, long gcCount, long gcMillis) {
+        HitchEvent event = new HitchEvent();
+        if (event.isEnabled()) {
+            event.interval = intervalNanos;
+            event.render = renderNanos;
+            event.ticks = ticks;
+            event.mode = mode;
+            event.gcCount = gcCount;
+            event.gcTime = gcMillis * 1000000L;
+            event.commit();
+        }
+    }
+
+}
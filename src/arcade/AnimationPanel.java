@@ -23,11 +23,14 @@ public abstract class AnimationPanel extends JPanel implements KeyListener, Mous
     public int mouseX;
     public int mouseY;
     public String myName;
+    public double interpolation;    //0..1, how far between the last two ticks this frame is drawn
+    private boolean focusRequested;
     
     
     public AnimationPanel(String n, int width, int height)
     {
         frameNumber = 0;
+        interpolation = 1;
         mouseX = 0;
         mouseY = 0;
         myName = n;
@@ -66,6 +69,13 @@ public abstract class AnimationPanel extends JPanel implements KeyListener, Mous
     }
 ///////////////////////////////////////////////////       
 
+    /* Method tick()
+     * Called by the GameLoop at a fixed rate, separately from painting.
+     * Extend this to move your game forward by one step,
+     * and use interpolation in renderFrame() to draw in between steps.
+     */
+    public void tick() {}
+    
     
     
 
@@ -106,7 +116,8 @@ public abstract class AnimationPanel extends JPanel implements KeyListener, Mous
     public void paintComponent(Graphics g) 
     {
         frameNumber++;
-        this.requestFocusInWindow();
+        if (!focusRequested)            //ask for the keyboard once, not on every frame
+            focusRequested = this.requestFocusInWindow();
         g = renderFrame(g);
     }
     
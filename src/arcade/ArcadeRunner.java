@@ -7,13 +7,13 @@ package arcade;
  * @author Travis Rother 
  * @version 2-25-2008
  */
-import java.awt.event.*;
 import javax.swing.JFrame;
 
 public class ArcadeRunner 
 {
 
-    int FPS = 60;   //Frames per second (animation speed)
+    int TPS = 60;   //Ticks per second (game speed)
+    int FPS = 60;   //Frames per second (how often the screen is painted, 0 for as fast as possible)
     AnimationPanel world = new ArcadeDemo();
     
     
@@ -42,16 +42,9 @@ public class ArcadeRunner
     
     public void startAnimation() 
     {
-        javax.swing.Timer t = new javax.swing.Timer(1000/FPS, new ActionListener() 
-        {   //This is something you may not have seen before...
-            //We are coding a method within the ActionListener object during it's construction!
-            public void actionPerformed(ActionEvent e) 
-            {
-                myFrame.getComponent(0).repaint();
-                myFrame.setSize(myFrame.getComponent(0).getPreferredSize());
-            }
-        }); //--end of construction of Timer--
-        t.start();
+        //The window is laid out once, so it can be resized or maximized afterwards
+        GameLoop loop = new GameLoop(world, TPS, FPS);
+        loop.start();
     }
     
     public static void main(String[] args) 
@@ -0,0 +1,240 @@
+package arcade;
+
+/**
+ * Class CanvasRunner
+ * Runs and animates an AnimationPanel by drawing it straight onto a Canvas,
+ * instead of asking Swing to repaint it.
+ *
+ * Every frame is drawn into the back buffer of a BufferStrategy and shown
+ * with show(), on the same GameLoop as ArcadeRunner uses. Swing never paints
+ * or coalesces anything, and nothing is laid out after the window opens. With
+ * page flipping, show() swaps the buffers at the vertical blank, so frames
+ * don't tear, and the loop paints at the display's refresh rate so that each
+ * frame is drawn just before it is shown.
+ *
+ * The window can also take over the screen in fullscreen exclusive mode, and
+ * switch the screen to a chosen display mode. If the screen can't do that, or
+ * refuses, the game is played in an ordinary window instead.
+ *
+ * The panel itself is never shown: the canvas passes its key and mouse events
+ * on to it, and the panel is kept the same size as the canvas.
+ */
+
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.DisplayMode;
+import java.awt.Frame;
+import java.awt.Graphics;
+import java.awt.GraphicsDevice;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferStrategy;
+
+public class CanvasRunner
+{
+
+    private static final int BUFFERS = 3;   //Java2D uses fewer if it can't make this many
+
+    private final AnimationPanel panel;
+    private final Frame frame;
+    private final Canvas canvas;
+    private final GameLoop loop;
+    private BufferStrategy strategy;
+    private boolean fullScreen;
+
+    /**
+     * Opens a window for the specified panel and starts animating it.
+     *
+     * @param panel       the panel to tick and draw
+     * @param tickRate    simulation steps per second
+     * @param renderRate  frames drawn per second, or 0 to draw as often as possible;
+     *                    ignored with page flipping, which draws at the display's refresh rate
+     * @param fullScreen  whether to try fullscreen exclusive mode
+     * @param displayMode the display mode to switch to in fullscreen, or null to keep the current one
+     */
+    public CanvasRunner(AnimationPanel panel, int tickRate, int renderRate, boolean fullScreen,
+            DisplayMode displayMode)
+    {
+        this.panel = panel;
+        frame = new Frame(panel.getMyName());
+        frame.setIgnoreRepaint(true);
+        frame.addWindowListener(new Closer());
+
+        canvas = new Canvas();
+        canvas.setIgnoreRepaint(true);
+        canvas.setPreferredSize(panel.getPreferredSize());
+        canvas.setBackground(panel.getBackground());
+        canvas.setFocusable(true);
+        canvas.addKeyListener(panel);
+        canvas.addMouseListener(panel);
+        canvas.addMouseMotionListener(panel);
+        canvas.addKeyListener(new KeyAdapter()
+        {
+            public void keyPressed(KeyEvent e)
+            {
+                if (e.getKeyCode() == KeyEvent.VK_ESCAPE && CanvasRunner.this.fullScreen)
+                    frame.dispatchEvent(new WindowEvent(frame, WindowEvent.WINDOW_CLOSING));
+            }
+        });
+        frame.add(canvas);
+
+        if (fullScreen)
+            this.fullScreen = enterFullScreen(displayMode);
+        if (!this.fullScreen)
+        {
+            frame.pack();
+            frame.setLocationByPlatform(true);
+            frame.setVisible(true);
+        }
+        canvas.requestFocus();
+
+        canvas.createBufferStrategy(BUFFERS);
+        strategy = canvas.getBufferStrategy();
+        BufferCapabilities caps = strategy.getCapabilities();
+        int refreshRate = frame.getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+        if (caps.isPageFlipping() && refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN)
+            renderRate = refreshRate;
+        System.out.println("Drawing on a canvas " + (this.fullScreen ? "in fullscreen" : "in a window")
+                + (caps.isPageFlipping() ? ", page flipping" : ", copying the back buffer")
+                + " at " + (renderRate == 0 ? "full speed" : renderRate + " fps"));
+
+        loop = new GameLoop(panel, tickRate, renderRate)
+        {
+            protected void paint()
+            {
+                draw();
+            }
+        };
+        loop.start();
+    }
+
+    public boolean isFullScreen() { return fullScreen; }
+
+    /**
+     * Puts the window in fullscreen exclusive mode, and switches the display mode
+     * if one was chosen. If that fails, the window is left ready to be shown normally.
+     *
+     * @return true if the window is fullscreen
+     */
+    private boolean enterFullScreen(DisplayMode displayMode)
+    {
+        GraphicsDevice device = frame.getGraphicsConfiguration().getDevice();
+        if (!device.isFullScreenSupported())
+        {
+            System.out.println("Fullscreen exclusive mode isn't supported, playing in a window");
+            return false;
+        }
+        try
+        {
+            frame.setUndecorated(true);
+            frame.setResizable(false);
+            device.setFullScreenWindow(frame);
+            if (displayMode != null)
+            {
+                if (device.isDisplayChangeSupported())
+                    device.setDisplayMode(displayMode);
+                else
+                    System.out.println("The display mode can't be changed, keeping "
+                            + describe(device.getDisplayMode()));
+            }
+            frame.validate();
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("Could not go fullscreen, playing in a window");
+            e.printStackTrace();
+            device.setFullScreenWindow(null);
+            frame.dispose();     //so the decorations can be put back
+            frame.setUndecorated(false);
+            frame.setResizable(true);
+            return false;
+        }
+    }
+
+    /**
+     * Draws one frame into the back buffer and shows it. Called on the event
+     * dispatch thread by the loop, after the ticks of the frame.
+     */
+    private void draw()
+    {
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        if (panel.getWidth() != width || panel.getHeight() != height)
+            panel.setSize(width, height);
+        panel.frameNumber++;
+
+        //The buffers can be lost, for example when the display mode changes,
+        //and then the frame is drawn again
+        do
+        {
+            do
+            {
+                Graphics g = strategy.getDrawGraphics();
+                try
+                {
+                    panel.renderFrame(g);
+                }
+                finally
+                {
+                    g.dispose();
+                }
+            }
+            while (strategy.contentsRestored());
+            strategy.show();
+        }
+        while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();     //don't let the window system queue the frame up
+    }
+
+    /**
+     * Returns the display mode of a device with the specified size, with the
+     * specified refresh rate if it has it or the highest one otherwise, and the
+     * most colors.
+     *
+     * @param device      the screen
+     * @param width       the width in pixels
+     * @param height      the height in pixels
+     * @param refreshRate the refresh rate, or 0 for the highest
+     * @return the display mode, or null if the device has none of that size
+     */
+    public static DisplayMode chooseDisplayMode(GraphicsDevice device, int width, int height, int refreshRate)
+    {
+        DisplayMode best = null;
+        for (DisplayMode mode : device.getDisplayModes())
+        {
+            if (mode.getWidth() != width || mode.getHeight() != height)
+                continue;
+            if (best == null || score(mode, refreshRate) > score(best, refreshRate))
+                best = mode;
+        }
+        return best;
+    }
+
+    private static long score(DisplayMode mode, int refreshRate)
+    {
+        boolean exact = refreshRate > 0 && mode.getRefreshRate() == refreshRate;
+        return (exact ? 1L << 40 : 0) + ((long) mode.getRefreshRate() << 16) + mode.getBitDepth();
+    }
+
+    private static String describe(DisplayMode mode)
+    {
+        return mode.getWidth() + "x" + mode.getHeight() + "@" + mode.getRefreshRate();
+    }
+
+    private class Closer extends WindowAdapter
+    {
+        public void windowClosing(WindowEvent e)
+        {
+            if (loop != null)
+                loop.stop();
+            if (fullScreen)
+                frame.getGraphicsConfiguration().getDevice().setFullScreenWindow(null);
+            System.exit(0);
+        }
+    }
+
+}
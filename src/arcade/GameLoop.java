@@ -0,0 +1,167 @@
+package arcade;
+
+/**
+ * Class GameLoop
+ * Drives an AnimationPanel with a fixed simulation step and a separate
+ * render rate, measured with System.nanoTime() instead of a Swing Timer.
+ *
+ * Time that passes between two frames is added to an accumulator, and the
+ * panel's tick() method is called once for every whole step that fits in it.
+ * Whatever is left over is handed to the panel as its interpolation value
+ * (between 0 and 1) so that it can draw in between the last two states.
+ * This keeps the speed of the game the same no matter how often the screen
+ * is painted.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+public class GameLoop implements Runnable
+{
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final int MAX_TICKS_PER_FRAME = 15;  //don't try to catch up for longer than this
+
+    private final AnimationPanel panel;
+    private final long tickNanos;
+    private final long renderNanos;
+    private volatile boolean running;
+    private Thread thread;
+
+    private long accumulator;
+    private int pendingTicks;
+    private double interpolation;
+
+    //The part of every frame that has to run on the event dispatch thread.
+    private final Runnable frame = new Runnable()
+    {
+        public void run()
+        {
+            for (int i = 0; i < pendingTicks; i++)
+                panel.tick();
+            panel.interpolation = interpolation;
+            paint();
+            frameRendered();
+        }
+    };
+
+    /**
+     * Creates a loop for the specified panel.
+     *
+     * @param panel      the panel to tick and paint
+     * @param tickRate   simulation steps per second
+     * @param renderRate frames painted per second, or 0 to paint as often as possible
+     */
+    public GameLoop(AnimationPanel panel, int tickRate, int renderRate)
+    {
+        if (tickRate <= 0)
+            throw new IllegalArgumentException("tickRate must be positive: " + tickRate);
+        if (renderRate < 0)
+            throw new IllegalArgumentException("renderRate must not be negative: " + renderRate);
+        this.panel = panel;
+        this.tickNanos = NANOS_PER_SECOND / tickRate;
+        this.renderNanos = (renderRate == 0) ? 0 : NANOS_PER_SECOND / renderRate;
+    }
+
+    public void start()
+    {
+        if (thread != null)
+            return;
+        running = true;
+        thread = new Thread(this, "GameLoop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop()
+    {
+        running = false;
+        if (thread != null)
+            thread.interrupt();
+        thread = null;
+    }
+
+    public void run()
+    {
+        long last = System.nanoTime();
+        long nextFrame = last;
+        while (running)
+        {
+            long now = System.nanoTime();
+            accumulator += now - last;
+            last = now;
+
+            //After a long stall (debugger, sleeping laptop...) drop the time we can't catch up on
+            if (accumulator > MAX_TICKS_PER_FRAME * tickNanos)
+                accumulator = MAX_TICKS_PER_FRAME * tickNanos;
+
+            pendingTicks = (int) (accumulator / tickNanos);
+            accumulator -= pendingTicks * tickNanos;
+            interpolation = (double) accumulator / tickNanos;
+
+            try
+            {
+                SwingUtilities.invokeAndWait(frame);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            catch (InvocationTargetException e)
+            {
+                e.getCause().printStackTrace();
+            }
+
+            if (renderNanos == 0)
+            {
+                Thread.yield();
+                continue;
+            }
+            nextFrame += renderNanos;
+            long wait = nextFrame - System.nanoTime();
+            if (wait <= 0)
+                nextFrame = System.nanoTime();     //running behind, don't try to render the missed frames
+            else
+                sleepNanos(wait);
+        }
+    }
+
+    /**
+     * Called on the event dispatch thread to paint every frame.
+     * By default the panel is painted straight away through Swing.
+     */
+    protected void paint()
+    {
+        panel.paintImmediately(0, 0, panel.getWidth(), panel.getHeight());
+    }
+
+    /**
+     * Called on the event dispatch thread after every painted frame.
+     * Does nothing by default.
+     */
+    protected void frameRendered() {}
+
+    //Thread.sleep alone overshoots by up to a millisecond or two on some platforms,
+    //so sleep for most of the time and park for the rest.
+    private static void sleepNanos(long nanos)
+    {
+        long end = System.nanoTime() + nanos;
+        if (nanos > 2000000L)
+        {
+            try
+            {
+                Thread.sleep((nanos - 2000000L) / 1000000L);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        long remaining;
+        while ((remaining = end - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+            LockSupport.parkNanos(remaining);
+    }
+
+}
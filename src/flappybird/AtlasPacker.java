@@ -0,0 +1,148 @@
+package flappybird;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Packs the small images in a directory into texture atlas sheets, run by the
+ * build after compiling.
+ * <p>
+ * Every PNG that is no bigger than {@link #MAX_REGION_SIZE} in either
+ * direction is packed, tallest first, into rows on sheets
+ * {@link #SHEET_WIDTH} pixels wide. Backdrops, pipes and other large images
+ * are left as they are, since they would mostly be empty space on a sheet and
+ * are drawn on their own anyway. Besides the sheets and the
+ * {@link TextureAtlas} index, the packer writes {@code atlas.lst}, the names of
+ * the images that were packed, so the build can leave them out of the jar.
+ * <p>
+ * Usage: {@code java flappybird.AtlasPacker <images directory>}
+ *
+ * @author Jiaxuan Wang
+ */
+public class AtlasPacker {
+
+    public static final int MAX_REGION_SIZE = 128;
+    public static final int SHEET_WIDTH = 256;
+    public static final int MAX_SHEET_HEIGHT = 1024;
+    public static final String LIST_NAME = "atlas.lst";
+
+    private static final int PADDING = 1;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java flappybird.AtlasPacker <images directory>");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        int packed = pack(dir);
+        System.out.println("Packed " + packed + " images from " + dir);
+    }
+
+    /**
+     * Packs the small images in a directory, writing the sheets, index and list
+     * of packed images into the same directory.
+     *
+     * @param dir the directory of images
+     * @return the number of images packed
+     * @throws IOException if an image can't be read or the atlas can't be written
+     */
+    public static int pack(File dir) throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".png") && !name.startsWith("atlas_"));
+        if (files == null) {
+            throw new IOException("Not a directory: " + dir);
+        }
+        Arrays.sort(files);
+
+        List<Input> inputs = new ArrayList<Input>();
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            if (image != null && image.getWidth() <= MAX_REGION_SIZE && image.getHeight() <= MAX_REGION_SIZE) {
+                inputs.add(new Input(file.getName(), image));
+            }
+        }
+        // Tallest first keeps the rows tight; the name makes the layout repeatable
+        inputs.sort((a, b) -> a.image.getHeight() != b.image.getHeight()
+                ? b.image.getHeight() - a.image.getHeight()
+                : a.fileName.compareTo(b.fileName));
+
+        // Lay the images out in rows, starting a new sheet when one is full
+        List<TextureAtlas.Region> regions = new ArrayList<TextureAtlas.Region>();
+        List<Integer> sheetHeights = new ArrayList<Integer>();
+        int sheet = 0;
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        for (Input input : inputs) {
+            int w = input.image.getWidth();
+            int h = input.image.getHeight();
+            if (x + w > SHEET_WIDTH) {
+                x = 0;
+                y += rowHeight + PADDING;
+                rowHeight = 0;
+            }
+            if (y + h > MAX_SHEET_HEIGHT) {
+                sheetHeights.add(y);
+                sheet++;
+                x = 0;
+                y = 0;
+                rowHeight = 0;
+            }
+            regions.add(new TextureAtlas.Region(input.baseName(), sheet, x, y, w, h));
+            x += w + PADDING;
+            rowHeight = Math.max(rowHeight, h);
+        }
+        sheetHeights.add(y + rowHeight);
+
+        // Draw and write the sheets
+        List<String> sheetNames = new ArrayList<String>();
+        BufferedImage[] sheets = new BufferedImage[sheetHeights.size()];
+        for (int i = 0; i < sheets.length; i++) {
+            sheets[i] = new BufferedImage(SHEET_WIDTH, Math.max(sheetHeights.get(i), 1), BufferedImage.TYPE_INT_ARGB);
+            sheetNames.add("atlas_" + i + ".png");
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            TextureAtlas.Region region = regions.get(i);
+            Graphics2D g = sheets[region.getSheet()].createGraphics();
+            g.drawImage(inputs.get(i).image, region.getX(), region.getY(), null);
+            g.dispose();
+        }
+        for (int i = 0; i < sheets.length; i++) {
+            ImageIO.write(sheets[i], "png", new File(dir, sheetNames.get(i)));
+        }
+
+        try (OutputStream out = new FileOutputStream(new File(dir, TextureAtlas.INDEX_NAME))) {
+            new TextureAtlas(sheetNames, regions).write(out);
+        }
+        try (PrintWriter out = new PrintWriter(new File(dir, LIST_NAME), "UTF-8")) {
+            for (Input input : inputs) {
+                out.println(input.fileName);
+            }
+        }
+        return inputs.size();
+    }
+
+    private static class Input {
+        private final String fileName;
+        private final BufferedImage image;
+
+        private Input(String fileName, BufferedImage image) {
+            this.fileName = fileName;
+            this.image = image;
+        }
+
+        private String baseName() {
+            return fileName.substring(0, fileName.lastIndexOf('.'));
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+package flappybird;
+
+import java.util.Arrays;
+
+/**
+ * Plays the game by itself, for attract mode and for soak tests.
+ * <p>
+ * Gravity and the flap are constants, so every flight arc is the same curve
+ * moved around: a bird that flaps follows {@code FLAP_ARC} from where it
+ * flapped, and a bird falling with some velocity follows a straight line plus
+ * {@code FALL_ARC}. Both tables are worked out once, with the same arithmetic
+ * as {@code Bird.update}, so the height of the bird any number of ticks ahead
+ * is one table lookup.
+ * <p>
+ * Each tick, the pipes ahead are turned into a table of the heights the bird
+ * can be at on each of the coming ticks: the gap of every pipe it overlaps on
+ * that tick, and above the ground. Pipes that haven't appeared yet are taken
+ * from {@link CourseGenerator#peek(int)}. Mario's fireballs fly in straight
+ * lines and his final jump follows his own gravity, so they go into the table
+ * too, as holes the bird can pass above or below.
+ * <p>
+ * The autopilot then searches for a sequence of flaps that stays inside the
+ * table until the bird is past the next two pipes, and flaps now only if that
+ * sequence starts with a flap. The flaps tried first are the ones that keep the
+ * bird's arc around the middle of the gap ahead, and the points already found
+ * to be hopeless are remembered, so the search seldom has to back up: a
+ * decision takes a few microseconds and allocates nothing.
+ *
+ * @author Jiaxuan Wang
+ */
+public class Autopilot {
+
+    private static final int MAX_HORIZON = 256; // ticks looked ahead, about two pipes
+    private static final int PIPES_AHEAD = 2;
+    private static final int MARGIN = 2; // pixels kept from the pipes and ground, for rounding
+    private static final int MAX_NODES = 4096; // flaps tried before giving up on a decision
+    private static final int RESTART_DELAY = 90; // ticks the game over screen is shown for
+    private static final int PIPE_SPAWN_X = World.WIDTH + Pipe.SPAWN_OFFSET;
+    private static final int PIPE_SPACING_X = World.PIPE_SPACING_X;
+    private static final int NO_PLAN = -1;
+
+    // How far below its starting point the bird is, t ticks after flapping or
+    // after starting to fall with no velocity
+    private static final double[] FLAP_ARC = new double[MAX_HORIZON + 1];
+    private static final double[] FALL_ARC = new double[MAX_HORIZON + 1];
+
+    // How far below the middle of a gap the bird flaps, so that its arc is
+    // centred on the gap
+    private static final int HOVER;
+
+    static {
+        double flapVel = Bird.FLAP_VELOCITY;
+        double fallVel = 0;
+        for (int t = 1; t <= MAX_HORIZON; t++) {
+            flapVel += Bird.GRAVITY;
+            fallVel += Bird.GRAVITY;
+            FLAP_ARC[t] = FLAP_ARC[t - 1] + flapVel;
+            FALL_ARC[t] = FALL_ARC[t - 1] + fallVel;
+        }
+        double top = 0;
+        for (double y : FLAP_ARC) {
+            top = Math.min(top, y);
+        }
+        HOVER = (int) (-top / 2);
+    }
+
+    // The lowest and highest y the bird can be at on each tick ahead, where
+    // tick 1 is the next one
+    private final int[] minY = new int[MAX_HORIZON + 1];
+    private final int[] maxY = new int[MAX_HORIZON + 1];
+    private final int[] holeTop = new int[MAX_HORIZON + 1]; // the bird can't be between these two
+    private final int[] holeBottom = new int[MAX_HORIZON + 1];
+    private final int[] target = new int[MAX_HORIZON + 2]; // the middle of the next gap the bird meets
+    private final long[] hopeless = new long[((MAX_HORIZON + 1) * World.GROUND_LEVEL + 63) / 64];
+    private int horizon;
+    private int nodes;
+    private int crashedTicks;
+
+    /**
+     * Decides the input for the next tick of a world.
+     *
+     * @param world the world being played
+     * @return the input for {@code World.step}
+     */
+    public int decide(World world) {
+        switch (world.getMode()) {
+            case World.READY:
+                crashedTicks = 0;
+                return World.FLAP;
+            case World.CRASHED:
+                if (++crashedTicks >= RESTART_DELAY) {
+                    crashedTicks = 0;
+                    return World.RESTART;
+                }
+                return 0;
+            default:
+                return shouldFlap(world) ? World.FLAP : 0;
+        }
+    }
+
+    private boolean shouldFlap(World world) {
+        Bird bird = world.getBird();
+        fillLimits(world, bird);
+        Arrays.fill(hopeless, 0);
+        nodes = 0;
+
+        double y = bird.getExactY();
+        int flap = plan(1, y, bird.getYVel(), false);
+        if (flap == NO_PLAN) {
+            // Nothing gets through, so aim for the middle of where the bird can be next
+            return y > (minY[1] + maxY[1]) / 2;
+        }
+        return flap == 0;
+    }
+
+    /**
+     * Looks for a way to get to the end of the horizon, starting at {@code y}
+     * at the start of {@code tick} with velocity {@code yVel}, and then flapping
+     * whenever it likes.
+     * <p>
+     * The flaps tried first are the ones that keep the bird's arc around the
+     * middle of the gap it is heading for, which is nearly always the way
+     * through, so the search seldom has to back up.
+     *
+     * @return the number of ticks until the first flap of the way found, where
+     *         0 is this tick, {@code Integer.MAX_VALUE} if it gets there without
+     *         flapping, or {@code NO_PLAN} if there is no way
+     */
+    private int plan(int tick, double y, double yVel, boolean flapped) {
+        int key = tick * World.GROUND_LEVEL + Math.max(0, Math.min((int) y, World.GROUND_LEVEL - 1));
+        if (flapped && (hopeless[key >>> 6] & (1L << key)) != 0) {
+            return NO_PLAN;
+        }
+        if (++nodes > MAX_NODES) {
+            return NO_PLAN;
+        }
+
+        // Follow the arc until the bird hits something or gets to the end
+        int t = 0;
+        while (true) {
+            if (tick + t > horizon) {
+                return Integer.MAX_VALUE;
+            }
+            int birdY = (int) arcY(y, yVel, flapped, t);
+            int n = tick + t;
+            if (birdY < minY[n] || birdY > maxY[n] || (birdY > holeTop[n] && birdY < holeBottom[n])) {
+                break;
+            }
+            t++;
+        }
+
+        // Then try flapping on the ticks before that, starting with the one
+        // closest to the height the bird should flap at
+        int first = flapped ? 1 : 0; // a bird that has just flapped can't flap again on the same tick
+        int best = first;
+        double bestDistance = Double.MAX_VALUE;
+        for (int f = first; f < t; f++) {
+            double distance = Math.abs(arcY(y, yVel, flapped, f) - (target[tick + f] + HOVER));
+            if (distance < bestDistance) {
+                best = f;
+                bestDistance = distance;
+            }
+        }
+        for (int i = 0; i < 2 * t; i++) {
+            int f = best + ((i & 1) == 0 ? i >> 1 : -(i >> 1) - 1);
+            if (f >= first && f < t
+                    && plan(tick + f, arcY(y, yVel, flapped, f), Bird.FLAP_VELOCITY, true) != NO_PLAN) {
+                return f;
+            }
+        }
+        if (flapped && nodes <= MAX_NODES) {
+            hopeless[key >>> 6] |= 1L << key;
+        }
+        return NO_PLAN;
+    }
+
+    private static double arcY(double y, double yVel, boolean flapped, int t) {
+        return y + (flapped ? FLAP_ARC[t] : yVel * t + FALL_ARC[t]);
+    }
+
+    /**
+     * Works out the heights the bird can be at on each tick ahead, from the
+     * pipes on the screen and the ones the course will add.
+     */
+    private void fillLimits(World world, Bird bird) {
+        int top = MARGIN;
+        int bottom = World.GROUND_LEVEL - bird.getHeight() - 1 - MARGIN;
+        Arrays.fill(minY, top);
+        Arrays.fill(maxY, bottom);
+        Arrays.fill(holeTop, Integer.MAX_VALUE);
+        Arrays.fill(holeBottom, Integer.MIN_VALUE);
+        horizon = MAX_HORIZON;
+
+        int pipesAhead = 0;
+        PipeRing pipes = world.getPipes();
+        for (int i = 0; i < pipes.size() && pipesAhead < PIPES_AHEAD; i++) {
+            Pipe pipe = pipes.get(i);
+            if (pipe.getX() + pipe.getWidth() > bird.getX()) {
+                addPipe(bird, pipe.getX(), pipe.getXVel(), pipe.getWidth(), 1,
+                        pipe.getUpperY() + pipe.getBoundHeight(), pipe.getLowerY(), ++pipesAhead == PIPES_AHEAD);
+            }
+        }
+
+        // The course adds a pipe on the tick the last one gets far enough
+        if (world.getMode() == World.PLAYING && !pipes.isEmpty()) {
+            Pipe last = pipes.last();
+            int lastX = last.getX();
+            int lastTick = 0;
+            int width = last.getWidth();
+            int upperOffset = last.getBoundHeight();
+            int lowerOffset = last.getLowerY() - last.getUpperY();
+            for (int k = 0; pipesAhead < PIPES_AHEAD; k++) {
+                int spawnTick = lastTick + Math.max(1, (lastX - PIPE_SPACING_X) / -World.X_VELOCITY + 1);
+                if (spawnTick >= horizon) {
+                    break;
+                }
+                int shift = world.getCourse().peek(k);
+                addPipe(bird, PIPE_SPAWN_X - spawnTick * World.X_VELOCITY, World.X_VELOCITY, width, spawnTick + 1,
+                        shift + upperOffset, shift + lowerOffset, ++pipesAhead == PIPES_AHEAD);
+                lastX = PIPE_SPAWN_X;
+                lastTick = spawnTick;
+            }
+        }
+
+        // Mario's fireballs fly straight, and he only comes at the bird on his
+        // final jump
+        if (world.getMode() == World.MARIO) {
+            for (int i = 0; i < world.getFireballs().size(); i++) {
+                Fireball fireball = world.getFireballs().get(i);
+                addObstacle(bird, fireball.getExactX(), fireball.getExactY(), fireball.getWidth(),
+                        fireball.getHeight(), fireball.getXVel(), fireball.getYVel(), 0);
+            }
+            Mario mario = world.getMario();
+            if (mario.getXVel() != 0) {
+                addObstacle(bird, mario.getExactX(), mario.getExactY(), mario.getWidth(), mario.getHeight(),
+                        mario.getXVel(), mario.getYVel(), Mario.GRAVITY);
+            }
+        }
+
+        // Work back from the end for the middle of the next narrowed part
+        target[horizon + 1] = (top + bottom) / 2;
+        for (int tick = horizon; tick >= 1; tick--) {
+            boolean narrowed = minY[tick] > top || maxY[tick] < bottom;
+            target[tick] = narrowed ? (minY[tick] + maxY[tick]) / 2 : target[tick + 1];
+        }
+    }
+
+    /**
+     * Narrows the limits on the ticks a pipe overlaps the bird, where the pipe
+     * is at {@code x + tick * xVel} on each tick from {@code firstTick}. The
+     * last pipe looked at also ends the horizon once the bird is past it.
+     */
+    private void addPipe(Bird bird, int x, int xVel, int width, int firstTick, int gapTop, int gapBottom,
+            boolean last) {
+        int top = gapTop + MARGIN;
+        int bottom = gapBottom - bird.getHeight() - MARGIN;
+        for (int tick = firstTick; tick <= horizon; tick++) {
+            int pipeX = x + tick * xVel;
+            if (pipeX + width <= bird.getX()) {
+                if (last) {
+                    horizon = tick;
+                }
+                return;
+            }
+            if (Collision.overlapsX(bird.getX(), bird.getWidth(), pipeX, width)) {
+                minY[tick] = Math.max(minY[tick], top);
+                maxY[tick] = Math.min(maxY[tick], bottom);
+            }
+        }
+    }
+
+    /**
+     * Keeps the bird out of the way of something flying at it, on the ticks it
+     * meets the bird. The bird can pass above or below it, so it makes a hole
+     * in the limits rather than narrowing them, and the holes of things that
+     * meet the bird on the same tick are joined into one. The obstacle is
+     * checked against the bird before it moves on each tick.
+     */
+    private void addObstacle(Bird bird, double x, double y, int width, int height, double xVel, double yVel,
+            double gravity) {
+        for (int tick = 1; tick <= horizon; tick++) {
+            if (x + width <= bird.getX() && xVel <= 0) {
+                return;
+            }
+            if (Collision.overlapsX(bird.getX(), bird.getWidth(), (int) x, width)) {
+                holeTop[tick] = Math.min(holeTop[tick], (int) y - bird.getHeight() - MARGIN);
+                holeBottom[tick] = Math.max(holeBottom[tick], (int) y + height + MARGIN);
+            }
+            x += xVel;
+            y += yVel;
+            yVel += gravity;
+        }
+    }
+
+}
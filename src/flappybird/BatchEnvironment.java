@@ -0,0 +1,356 @@
+package flappybird;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many independent games of Flappy Bird stepped together, for training bots.
+ * <p>
+ * Each game follows the same rules as a {@link World} that is playing: the
+ * same gravity and flap as {@code Bird}, the same pipe gaps and spacing, the
+ * same collision boxes, and the same courses, so a bot trained here plays the
+ * real game. Only the parts a bot can't see are left out: there is no ready
+ * phase, since a game starts playing straight away, and there are no Mario
+ * rounds.
+ * <p>
+ * Instead of a {@code World} per game, the state of every game is kept in
+ * arrays of primitives, one element per game, and each game's pipes are a
+ * small ring inside one shared array. The random number generator of each
+ * course is a single {@code long}, stepped exactly the way
+ * {@code java.util.Random} steps it. Stepping the batch is one pass over the
+ * arrays, split across cores with fork/join when the batch is large, and
+ * allocates nothing but the fork/join tasks.
+ * <p>
+ * A game that ends is started again with a new course on the same step, so
+ * the batch always holds {@link #size()} games in progress. The observations
+ * after such a step are the first of the new game, and {@link #getDone()}
+ * says which games ended.
+ *
+ * @author Jiaxuan Wang
+ */
+public class BatchEnvironment {
+
+    /**
+     * The number of values observed for each game: the bird's <i>y</i>
+     * coordinate, its vertical velocity, the distance from the bird to the next
+     * pipe it hasn't passed, and how far the middle of that pipe's gap is below
+     * the bird.
+     */
+    public static final int OBSERVATION_SIZE = 4;
+
+    public static final float PIPE_REWARD = 1;
+    public static final float CRASH_REWARD = -1;
+
+    // The same constants as Bird, Pipe and World
+    private static final double GRAVITY = Bird.GRAVITY;
+    private static final double FLAP_VELOCITY = Bird.FLAP_VELOCITY;
+    private static final int BIRD_X = Bird.START_X;
+    private static final int BIRD_START_Y = Bird.START_Y;
+    private static final int BIRD_WIDTH = Bird.WIDTH;
+    private static final int BIRD_HEIGHT = Bird.HEIGHT;
+    private static final int PIPE_WIDTH = Pipe.WIDTH;
+    private static final int PIPE_BOUND_HEIGHT = Pipe.BOUND_HEIGHT;
+    private static final int PIPE_LOWER_OFFSET = Pipe.LOWER_OFFSET;
+    private static final int PIPE_SPAWN_X = World.WIDTH + Pipe.SPAWN_OFFSET;
+    private static final int PIPE_SPACING_X = World.PIPE_SPACING_X;
+    private static final int GAP_MIDDLE = (PIPE_BOUND_HEIGHT + PIPE_LOWER_OFFSET) / 2;
+
+    private static final int PIPE_SLOTS = 8; // a power of two, more than can be on the screen
+    private static final int PIPE_MASK = PIPE_SLOTS - 1;
+    private static final int GAMES_PER_TASK = 2048;
+
+    // java.util.Random
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long RANDOM_MASK = (1L << 48) - 1;
+
+    private final int size;
+    private final ForkJoinPool pool;
+
+    private final double[] y;
+    private final double[] yVel;
+    private final int[] score;
+    private final int[] ticks;
+    private final long[] courseSeed;
+    private final long[] random;
+    private final int[] pipeX;
+    private final int[] pipeShift;
+    private final int[] pipeHead;
+    private final int[] pipeCount;
+    private final int[] nextPipeToScore;
+
+    private final float[] observations;
+    private final float[] rewards;
+    private final boolean[] done;
+    private final int[] finalScores;
+
+    /**
+     * Constructs a {@code BatchEnvironment} stepped on the common fork/join pool.
+     *
+     * @param size the number of games
+     * @param seed the seed the courses of every game are made from
+     */
+    public BatchEnvironment(int size, long seed) {
+        this(size, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a {@code BatchEnvironment}.
+     *
+     * @param size the number of games
+     * @param seed the seed the courses of every game are made from
+     * @param pool the pool to step the games on
+     */
+    public BatchEnvironment(int size, long seed, ForkJoinPool pool) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The number of games must be positive: " + size);
+        }
+        this.size = size;
+        this.pool = pool;
+        y = new double[size];
+        yVel = new double[size];
+        score = new int[size];
+        ticks = new int[size];
+        courseSeed = new long[size];
+        random = new long[size];
+        pipeX = new int[size * PIPE_SLOTS];
+        pipeShift = new int[size * PIPE_SLOTS];
+        pipeHead = new int[size];
+        pipeCount = new int[size];
+        nextPipeToScore = new int[size];
+        observations = new float[size * OBSERVATION_SIZE];
+        rewards = new float[size];
+        done = new boolean[size];
+        finalScores = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            courseSeed[i] = CourseGenerator.mixSeed(seed + i);
+            reset(i, courseSeed[i]);
+        }
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public int size() { return size; }
+    public int getScore(int game) { return score[game]; }
+    public int getTicks(int game) { return ticks[game]; }
+    public long getCourseSeed(int game) { return courseSeed[game]; }
+
+    /**
+     * Returns the observations of every game, {@link #OBSERVATION_SIZE} values
+     * per game, in the order of the games. The same array is updated by every
+     * step.
+     *
+     * @return the observations
+     */
+    public float[] getObservations() { return observations; }
+
+    /**
+     * Returns the reward each game got on the last step: {@link #PIPE_REWARD}
+     * for each pipe passed and {@link #CRASH_REWARD} for crashing. The same array
+     * is updated by every step.
+     *
+     * @return the rewards
+     */
+    public float[] getRewards() { return rewards; }
+
+    /**
+     * Returns which games ended on the last step, and were started again. The
+     * same array is updated by every step.
+     *
+     * @return {@code true} for each game that ended
+     */
+    public boolean[] getDone() { return done; }
+
+    /**
+     * Returns the score each game ended with, for the games that ended on the
+     * last step. The same array is updated by every step.
+     *
+     * @return the final scores
+     */
+    public int[] getFinalScores() { return finalScores; }
+
+    /**
+     * Starts every game again on a new course.
+     */
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            courseSeed[i] = CourseGenerator.mixSeed(courseSeed[i]);
+            reset(i, courseSeed[i]);
+            rewards[i] = 0;
+            done[i] = false;
+        }
+    }
+
+    /**
+     * Steps every game by one tick.
+     *
+     * @param flaps whether each game's bird flaps on this tick
+     */
+    public void step(boolean[] flaps) {
+        if (flaps.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " actions, got " + flaps.length);
+        }
+        if (size <= GAMES_PER_TASK) {
+            step(flaps, 0, size);
+        } else {
+            pool.invoke(new StepTask(flaps, 0, size));
+        }
+    }
+
+    private class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean[] flaps;
+        private final int from;
+        private final int to;
+
+        StepTask(boolean[] flaps, int from, int to) {
+            this.flaps = flaps;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                step(flaps, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new StepTask(flaps, from, middle), new StepTask(flaps, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Steps a range of games, in the same order as {@code World.step}.
+     */
+    private void step(boolean[] flaps, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (flaps[i]) {
+                yVel[i] = FLAP_VELOCITY;
+            }
+            int birdY = (int) y[i];
+            float reward = 0;
+            boolean crashed = birdY + BIRD_HEIGHT >= World.GROUND_LEVEL;
+
+            int base = i * PIPE_SLOTS;
+            int head = pipeHead[i];
+            int count = pipeCount[i];
+            if (!crashed) {
+                for (int k = 0; k < count; k++) {
+                    int slot = base + ((head + k) & PIPE_MASK);
+                    int previousX = pipeX[slot];
+                    int x = previousX + World.X_VELOCITY;
+                    pipeX[slot] = x;
+
+                    if (k == nextPipeToScore[i] && previousX > BIRD_X && x <= BIRD_X) {
+                        nextPipeToScore[i]++;
+                        score[i]++;
+                        reward += PIPE_REWARD;
+                    }
+
+                    int shift = pipeShift[slot];
+                    if (Collision.overlapsX(BIRD_X, BIRD_WIDTH, x, PIPE_WIDTH)
+                            && (Collision.intersects(BIRD_X, birdY, BIRD_WIDTH, BIRD_HEIGHT,
+                                    x, shift, PIPE_WIDTH, PIPE_BOUND_HEIGHT)
+                            || Collision.intersects(BIRD_X, birdY, BIRD_WIDTH, BIRD_HEIGHT,
+                                    x, shift + PIPE_LOWER_OFFSET, PIPE_WIDTH, PIPE_BOUND_HEIGHT))) {
+                        crashed = true;
+                        break;
+                    }
+                }
+            }
+
+            if (crashed) {
+                rewards[i] = reward + CRASH_REWARD;
+                done[i] = true;
+                finalScores[i] = score[i];
+                courseSeed[i] = CourseGenerator.mixSeed(courseSeed[i]);
+                reset(i, courseSeed[i]);
+                continue;
+            }
+
+            // Add a pipe when the last one is far enough, and remove the first once it is off the screen
+            if (pipeX[base + ((head + count - 1) & PIPE_MASK)] < PIPE_SPACING_X) {
+                int slot = base + ((head + count) & PIPE_MASK);
+                pipeX[slot] = PIPE_SPAWN_X;
+                pipeShift[slot] = nextShift(i);
+                count++;
+            }
+            if (pipeX[base + head] < -PIPE_WIDTH) {
+                head = (head + 1) & PIPE_MASK;
+                count--;
+                if (nextPipeToScore[i] > 0) {
+                    nextPipeToScore[i]--;
+                }
+            }
+            pipeHead[i] = head;
+            pipeCount[i] = count;
+
+            // Bird.update
+            double vel = yVel[i] + GRAVITY;
+            double newY = y[i] + vel;
+            if (newY > World.GROUND_LEVEL - BIRD_HEIGHT) {
+                newY = World.GROUND_LEVEL - BIRD_HEIGHT;
+                vel = 0;
+            } else if (newY < 0) {
+                newY = 0;
+                vel = 0;
+            }
+            y[i] = newY;
+            yVel[i] = vel;
+            ticks[i]++;
+
+            rewards[i] = reward;
+            done[i] = false;
+            observe(i);
+        }
+    }
+
+    private void reset(int i, long seed) {
+        random[i] = (seed ^ MULTIPLIER) & RANDOM_MASK;
+        y[i] = BIRD_START_Y;
+        yVel[i] = 0;
+        score[i] = 0;
+        ticks[i] = 0;
+        nextPipeToScore[i] = 0;
+        pipeHead[i] = 0;
+        pipeCount[i] = 1;
+        pipeX[i * PIPE_SLOTS] = PIPE_SPAWN_X;
+        pipeShift[i * PIPE_SLOTS] = nextShift(i);
+        observe(i);
+    }
+
+    private void observe(int i) {
+        int base = i * PIPE_SLOTS;
+        int head = pipeHead[i];
+        int slot = base + head;
+        for (int k = 0; k < pipeCount[i]; k++) {
+            slot = base + ((head + k) & PIPE_MASK);
+            if (pipeX[slot] + PIPE_WIDTH > BIRD_X) {
+                break;
+            }
+        }
+        int o = i * OBSERVATION_SIZE;
+        observations[o] = (float) y[i];
+        observations[o + 1] = (float) yVel[i];
+        observations[o + 2] = pipeX[slot] - BIRD_X;
+        observations[o + 3] = (float) (pipeShift[slot] + GAP_MIDDLE - y[i]);
+    }
+
+    /**
+     * Returns the shift of the next pipe of a game's course, the same as
+     * {@code CourseGenerator.next()} with the same seed.
+     */
+    private int nextShift(int i) {
+        long seed = random[i];
+        seed = (seed * MULTIPLIER + ADDEND) & RANDOM_MASK;
+        long high = seed >>> (48 - 26);
+        seed = (seed * MULTIPLIER + ADDEND) & RANDOM_MASK;
+        long low = seed >>> (48 - 27);
+        random[i] = seed;
+        double value = ((high << 27) + low) * 0x1.0p-53;
+        return (int) (value * CourseGenerator.SHIFT_RANGE) + CourseGenerator.MIN_SHIFT;
+    }
+
+}
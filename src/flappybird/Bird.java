@@ -1,8 +1,6 @@
 package flappybird;
 
-import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.image.ImageObserver;
 
@@ -13,31 +11,54 @@ import java.awt.image.ImageObserver;
  */
 public class Bird {
 
-    private final int width = 55;
-    private final int height = 38;
-    private final Image[] yellowImages = new Image[] { 
-                Resources.BIRD_YELLOW_WING_MID, 
-                Resources.BIRD_YELLOW_WING_DOWN,
-                Resources.BIRD_YELLOW_WING_MID, 
-                Resources.BIRD_YELLOW_WING_UP };
-
-    private final Image[] blueImages = new Image[] { 
-                Resources.BIRD_BLUE_WING_MID, 
-                Resources.BIRD_BLUE_WING_DOWN,
-                Resources.BIRD_BLUE_WING_MID, 
-                Resources.BIRD_BLUE_WING_UP };
-
-    private final Image[] redImages = new Image[] { 
-                Resources.BIRD_RED_WING_MID, 
-                Resources.BIRD_RED_WING_DOWN,
-                Resources.BIRD_RED_WING_MID, 
-                Resources.BIRD_RED_WING_UP };
+    /**
+     * The velocity added every tick, pulling the bird down.
+     */
+    public static final double GRAVITY = 0.7;
+
+    /**
+     * The vertical velocity the bird is given when it flaps.
+     */
+    public static final double FLAP_VELOCITY = -10.5;
+
+    /**
+     * The size of the bird, which is also the size of its collision box.
+     */
+    public static final int WIDTH = 55;
+    public static final int HEIGHT = 38;
+
+    /**
+     * Where the bird starts. It stays at the same <i>x</i> coordinate while the
+     * pipes scroll past.
+     */
+    public static final int START_X = 120;
+    public static final int START_Y = 310;
+
+    // Colors
+    // -------------------------------------------------------
+    public static final int YELLOW = 0;
+    public static final int BLUE = 1;
+    public static final int RED = 2;
+    public static final int COLOR_COUNT = 3;
+
+    /**
+     * The number of frames in the flapping animation.
+     */
+    public static final int FRAME_COUNT = 4;
+
+    private static final String[] COLOR_NAMES = { "yellow", "blue", "red" };
+    private static final int[] FRAME_NUMBERS = { 1, 2, 1, 3 };
+    private static final Sprite[][] FRAMES = new Sprite[COLOR_COUNT][];
+
+    private final int width = WIDTH;
+    private final int height = HEIGHT;
 
     private double x;
     private double y;
+    private double lastY;
     private double yVel;
     private int imageIndex;
-    private Color color;
+    private int color;
 
     /**
      * Constructs a new {@code Bird} object hovering in the middle of the window, in
@@ -51,15 +72,18 @@ public class Bird {
     // -------------------------------------------------------
     public int getX() { return (int) x; }
     public int getY() { return (int) y; }
+    public double getExactY() { return y; }
+    public double getYVel() { return yVel; }
     public int getWidth() { return width; }
     public int getHeight() { return height; }
+    public int getColor() { return color; }
     public Rectangle getBounds() { return new Rectangle((int) x, (int) y, width, height); }
 
     // Modifiers
     // -------------------------------------------------------
     public void setX(int x) { this.x = x; }
     public void setY(int y) { this.y = y; }
-    public void setColor(Color color) { this.color = color; }
+    public void setColor(int color) { this.color = color; }
 
     /**
      * Returns whether this {@code Bird} object's boundaries intersect the specified
@@ -69,7 +93,55 @@ public class Bird {
      * @return {@code true} if the boundaries intersect; {@code false} otherwise
      */
     public boolean intersects(Rectangle bounds) {
-        return getBounds().intersects(bounds);
+        return intersects(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Returns whether this {@code Bird} object's boundaries intersect the specified
+     * box, without allocating anything.
+     * 
+     * @param x      the <i>x</i> coordinate of the box
+     * @param y      the <i>y</i> coordinate of the box
+     * @param width  the width of the box
+     * @param height the height of the box
+     * @return {@code true} if the boundaries intersect; {@code false} otherwise
+     */
+    public boolean intersects(int x, int y, int width, int height) {
+        return Collision.intersects((int) this.x, (int) this.y, this.width, this.height, x, y, width, height);
+    }
+
+    /**
+     * Returns whether this {@code Bird} hits either half of a {@code Pipe}.
+     * 
+     * @param pipe the {@code Pipe} to check
+     * @return {@code true} if the bird hits the pipe; {@code false} otherwise
+     */
+    public boolean intersects(Pipe pipe) {
+        if (!Collision.overlapsX((int) x, width, pipe.getX(), pipe.getWidth())) {
+            return false;
+        }
+        return intersects(pipe.getX(), pipe.getUpperY(), pipe.getWidth(), pipe.getBoundHeight())
+                || intersects(pipe.getX(), pipe.getLowerY(), pipe.getWidth(), pipe.getBoundHeight());
+    }
+
+    /**
+     * Returns whether this {@code Bird} hits a {@code Fireball}.
+     * 
+     * @param fireball the {@code Fireball} to check
+     * @return {@code true} if the bird hits the fireball; {@code false} otherwise
+     */
+    public boolean intersects(Fireball fireball) {
+        return intersects(fireball.getX(), fireball.getY(), fireball.getWidth(), fireball.getHeight());
+    }
+
+    /**
+     * Returns whether this {@code Bird} touches {@code Mario}.
+     * 
+     * @param mario the {@code Mario} to check
+     * @return {@code true} if the bird touches Mario; {@code false} otherwise
+     */
+    public boolean intersects(Mario mario) {
+        return intersects(mario.getX(), mario.getY(), mario.getWidth(), mario.getHeight());
     }
 
     /**
@@ -77,7 +149,7 @@ public class Bird {
      * that the velocity is negative because downward is positive.
      */
     public void fly() {
-        yVel = -10.5;
+        yVel = FLAP_VELOCITY;
     }
 
     /**
@@ -85,27 +157,52 @@ public class Bird {
      * window in the ready phase.
      */
     public void reset() {
-        x = 120;
-        y = 310;
+        x = START_X;
+        y = START_Y;
+        lastY = y;
         yVel = 0;
         imageIndex = 0;
     }
 
+    /**
+     * Remembers the current position as the one this {@code Bird} had at the start
+     * of the tick, so that it can be drawn in between ticks.
+     */
+    public void savePosition() {
+        lastY = y;
+    }
+
+    /**
+     * Makes this {@code Bird} a copy of another one, so that it can be drawn
+     * while the other one moves on.
+     * 
+     * @param other the {@code Bird} to copy
+     */
+    public void copyFrom(Bird other) {
+        x = other.x;
+        y = other.y;
+        lastY = other.lastY;
+        yVel = other.yVel;
+        imageIndex = other.imageIndex;
+        color = other.color;
+    }
+
     /**
      * Updates the location of this {@code Bird} based on its velocity, taking into
-     * account the upper and lower bounds of the frame.
+     * account the top and bottom of the area it flies in.
      * 
-     * @param screenBounds a {@code Rectangle} specifying the boundaries
+     * @param minY the <i>y</i> coordinate of the top of the area
+     * @param maxY the <i>y</i> coordinate of the bottom of the area
      */
-    public void update(Rectangle screenBounds) {
-        yVel += 0.7;
+    public void update(int minY, int maxY) {
+        yVel += GRAVITY;
         y += yVel;
 
-        if (y > screenBounds.getMaxY() - height) {
-            y = (int) screenBounds.getMaxY() - height;
+        if (y > maxY - height) {
+            y = maxY - height;
             yVel = 0;
-        } else if (y < screenBounds.getMinY()) {
-            y = (int) screenBounds.getMinY();
+        } else if (y < minY) {
+            y = minY;
             yVel = 0;
         }
     }
@@ -114,7 +211,7 @@ public class Bird {
      * Updates the image index in order to animate the bird flapping its wings.
      */
     public void animate() {
-        imageIndex = (imageIndex + 1) % yellowImages.length;
+        imageIndex = (imageIndex + 1) % FRAME_COUNT;
     }
 
     /**
@@ -124,13 +221,40 @@ public class Bird {
      * @param io the {@code ImageObserver} to be notified
      */
     public void draw(Graphics g, ImageObserver io) {
-        if (color.equals(Color.BLUE)) {
-            g.drawImage(blueImages[imageIndex], (int) x, (int) y, width, height, io);
-        } else if (color.equals(Color.RED)) {
-            g.drawImage(redImages[imageIndex], (int) x, (int) y, width, height, io);
-        } else {
-            g.drawImage(yellowImages[imageIndex], (int) x, (int) y, width, height, io);
+        draw(g, io, 1);
+    }
+
+    /**
+     * Draws this {@code Bird} object to the screen, in between its position at the
+     * start of the tick and its current position.
+     * 
+     * @param g     the {@code Graphics} object to be drawn on
+     * @param io    the {@code ImageObserver} to be notified
+     * @param alpha how far between the two positions to draw, from 0 to 1
+     */
+    public void draw(Graphics g, ImageObserver io, double alpha) {
+        int drawY = (int) (lastY + (y - lastY) * alpha);
+        frames(color)[imageIndex].draw(g, (int) x, drawY, io);
+    }
+
+    /**
+     * Returns the frames of the flapping animation in one color, which every
+     * bird of that color shares. They are looked up the first time they are
+     * needed, so a {@code Bird} can be made before the sprites are loaded.
+     * 
+     * @param color the color, such as {@link #YELLOW}
+     * @return the frames, {@link #FRAME_COUNT} of them
+     */
+    static Sprite[] frames(int color) {
+        Sprite[] frames = FRAMES[color];
+        if (frames == null) {
+            frames = new Sprite[FRAME_COUNT];
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                frames[i] = Resources.getSprite("bird_" + COLOR_NAMES[color] + "_" + FRAME_NUMBERS[i]);
+            }
+            FRAMES[color] = frames;
         }
+        return frames;
     }
 
 }
@@ -0,0 +1,62 @@
+package flappybird;
+
+/**
+ * Axis-aligned bounding box tests on primitive coordinates.
+ * <p>
+ * These give exactly the same answers as {@code java.awt.Rectangle.intersects},
+ * including for empty boxes and boxes whose far edge overflows an {@code int},
+ * but don't need a {@code Rectangle} to be allocated for either box.
+ *
+ * @author Jiaxuan Wang
+ */
+public final class Collision {
+
+    private Collision() {
+    }
+
+    /**
+     * Returns whether two boxes intersect. Boxes with a width or height of zero
+     * or less never intersect anything.
+     *
+     * @param ax the <i>x</i> coordinate of the first box
+     * @param ay the <i>y</i> coordinate of the first box
+     * @param aw the width of the first box
+     * @param ah the height of the first box
+     * @param bx the <i>x</i> coordinate of the second box
+     * @param by the <i>y</i> coordinate of the second box
+     * @param bw the width of the second box
+     * @param bh the height of the second box
+     * @return {@code true} if the boxes intersect; {@code false} otherwise
+     */
+    public static boolean intersects(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        if (aw <= 0 || ah <= 0 || bw <= 0 || bh <= 0) {
+            return false;
+        }
+        int aRight = ax + aw;
+        int aBottom = ay + ah;
+        int bRight = bx + bw;
+        int bBottom = by + bh;
+        // Each side is "overflowed or past the other box's near edge"
+        return (bRight < bx || bRight > ax)
+                && (bBottom < by || bBottom > ay)
+                && (aRight < ax || aRight > bx)
+                && (aBottom < ay || aBottom > by);
+    }
+
+    /**
+     * Returns whether the horizontal extent of two boxes overlaps. This is the
+     * cheap test used to skip pipes that are nowhere near the bird before
+     * testing them properly.
+     *
+     * @param ax the <i>x</i> coordinate of the first box
+     * @param aw the width of the first box
+     * @param bx the <i>x</i> coordinate of the second box
+     * @param bw the width of the second box
+     * @return {@code true} if the boxes could intersect; {@code false} if they
+     *         certainly don't
+     */
+    public static boolean overlapsX(int ax, int aw, int bx, int bw) {
+        return ax < bx + bw && bx < ax + aw;
+    }
+
+}
@@ -0,0 +1,143 @@
+package flappybird;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+/**
+ * Generates the course: the vertical shift of the gap in every pipe, in order,
+ * from a seed.
+ * <p>
+ * The shifts are generated ahead of time into a ring of {@code int}s, so the
+ * next few pipes can be looked at with {@link #peek(int)} before they exist,
+ * for example by an autopilot or a preview, without creating any {@code Pipe}
+ * objects. Taking a pipe with {@link #next()} generates one more shift at the
+ * far end of the ring, so nothing is allocated while the game runs.
+ * <p>
+ * The same seed always gives the same course. {@link #dailySeed(LocalDate)}
+ * turns a date into a seed, so everyone playing on the same day can get the
+ * same course.
+ *
+ * @author Jiaxuan Wang
+ */
+public class CourseGenerator {
+
+    /**
+     * The smallest shift a pipe can have, which puts its gap at the top.
+     */
+    public static final int MIN_SHIFT = -400;
+
+    /**
+     * The number of different shifts, which puts the lowest gap just above the
+     * ground.
+     */
+    public static final int SHIFT_RANGE = World.GROUND_LEVEL - 260;
+
+    private final Random random;
+    private final int[] shifts;
+    private final int mask;
+    private long seed;
+    private int position;
+
+    /**
+     * Constructs a {@code CourseGenerator} that looks ahead at least the
+     * specified number of pipes.
+     *
+     * @param seed      the seed for the course
+     * @param lookahead the number of upcoming pipes that can be peeked at
+     */
+    public CourseGenerator(long seed, int lookahead) {
+        if (lookahead < 1) {
+            throw new IllegalArgumentException("The lookahead must be at least 1: " + lookahead);
+        }
+        random = new Random();
+        shifts = new int[(lookahead == 1) ? 1 : Integer.highestOneBit(lookahead - 1) << 1]; // a power of two
+        mask = shifts.length - 1;
+        reset(seed);
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public long getSeed() { return seed; }
+    public int getPosition() { return position; }
+    public int getLookahead() { return shifts.length; }
+
+    /**
+     * Starts the course over from its first pipe with the specified seed.
+     *
+     * @param seed the seed for the course
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+        position = 0;
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = generate();
+        }
+    }
+
+    /**
+     * Returns the shift of an upcoming pipe without taking it.
+     *
+     * @param ahead how many pipes ahead to look, where 0 is the next pipe
+     * @return the vertical shift of that pipe
+     */
+    public int peek(int ahead) {
+        if (ahead < 0 || ahead >= shifts.length) {
+            throw new IndexOutOfBoundsException("Can only look " + shifts.length + " pipes ahead: " + ahead);
+        }
+        return shifts[(position + ahead) & mask];
+    }
+
+    /**
+     * Takes the shift for the next pipe and moves on to the one after it.
+     *
+     * @return the vertical shift of the next pipe
+     */
+    public int next() {
+        int slot = position & mask;
+        int shift = shifts[slot];
+        shifts[slot] = generate();
+        position++;
+        return shift;
+    }
+
+    private int generate() {
+        return (int) (random.nextDouble() * SHIFT_RANGE) + MIN_SHIFT;
+    }
+
+    /**
+     * Returns the seed of the course for a day. Every player gets the same seed
+     * for the same date.
+     *
+     * @param date the date
+     * @return the seed for that day's course
+     */
+    public static long dailySeed(LocalDate date) {
+        return mixSeed(date.toEpochDay());
+    }
+
+    /**
+     * Scrambles a number into a seed with SplitMix64, so that neighbouring
+     * numbers, such as consecutive days, give unrelated courses.
+     *
+     * @param z the number
+     * @return the seed
+     */
+    static long mixSeed(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the seed of today's course, going by the date in UTC.
+     *
+     * @return the seed for today's course
+     */
+    public static long dailySeed() {
+        return dailySeed(LocalDate.now(ZoneOffset.UTC));
+    }
+
+}
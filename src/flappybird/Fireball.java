@@ -16,8 +16,10 @@ public class Fireball {
 
     private double x;
     private double y;
-    private final double xVel;
-    private final double yVel;
+    private double lastX;
+    private double lastY;
+    private double xVel;
+    private double yVel;
 
     /**
      * Constructs a new {@code Fireball} object with the specified position and
@@ -29,18 +31,39 @@ public class Fireball {
      * @param yVel the vertical velocity
      */
     public Fireball(double x, double y, double xVel, double yVel) {
-        this.x = x;
-        this.y = y;
-        this.xVel = xVel;
-        this.yVel = yVel;
+        launch(x, y, xVel, yVel);
     }
 
     // Accessors
     // -------------------------------------------------------
     public int getX() { return (int) x; }
     public int getY() { return (int) y; }
+    public double getExactX() { return x; }
+    public double getExactY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public double getXVel() { return xVel; }
+    public double getYVel() { return yVel; }
     public Rectangle getBounds() { return new Rectangle((int) x, (int) y, width, height); }
 
+    /**
+     * Throws this {@code Fireball} again from the specified position with the
+     * specified velocity, so that the same object can be used for many throws.
+     * 
+     * @param x    the x position
+     * @param y    the y position
+     * @param xVel the horizontal velocity
+     * @param yVel the vertical velocity
+     */
+    public void launch(double x, double y, double xVel, double yVel) {
+        this.x = x;
+        this.y = y;
+        this.lastX = x;
+        this.lastY = y;
+        this.xVel = xVel;
+        this.yVel = yVel;
+    }
+
     /**
      * Updates this {@code Fireball} object's position based on its horizontal and
      * vertical velocities.
@@ -50,6 +73,30 @@ public class Fireball {
         y += yVel;
     }
 
+    /**
+     * Remembers the current position as the one this {@code Fireball} had at the start
+     * of the tick, so that it can be drawn in between ticks.
+     */
+    public void savePosition() {
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * Makes this {@code Fireball} a copy of another one, so that it can be drawn
+     * while the other one moves on.
+     * 
+     * @param other the {@code Fireball} to copy
+     */
+    public void copyFrom(Fireball other) {
+        x = other.x;
+        y = other.y;
+        lastX = other.lastX;
+        lastY = other.lastY;
+        xVel = other.xVel;
+        yVel = other.yVel;
+    }
+
     /**
      * Draws this {@code Fireball} object to the screen.
      * 
@@ -57,7 +104,21 @@ public class Fireball {
      * @param io the {@code ImageObserver} to be notified
      */
     public void draw(Graphics g, ImageObserver io) {
-        g.drawImage(Resources.FIREBALL_IMAGE, (int) x, (int) y, width, height, io);
+        draw(g, io, 1);
+    }
+
+    /**
+     * Draws this {@code Fireball} object to the screen, in between its position at
+     * the start of the tick and its current position.
+     * 
+     * @param g     the {@code Graphics} object to be drawn on
+     * @param io    the {@code ImageObserver} to be notified
+     * @param alpha how far between the two positions to draw, from 0 to 1
+     */
+    public void draw(Graphics g, ImageObserver io, double alpha) {
+        int drawX = (int) (lastX + (x - lastX) * alpha);
+        int drawY = (int) (lastY + (y - lastY) * alpha);
+        Resources.getSprite("fireball").draw(g, drawX, drawY, io);
     }
 
 }
@@ -1,19 +1,29 @@
 package flappybird;
 
 import java.awt.Graphics;
-import java.awt.Image;
+import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Color;
-import java.awt.FontMetrics;
 import java.awt.event.MouseEvent;
 import java.awt.image.ImageObserver;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
-
-import javax.sound.sampled.Clip;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import arcade.AnimationPanel;
 
@@ -26,275 +36,602 @@ import arcade.AnimationPanel;
  */
 public class FlappyBirdGame extends AnimationPanel {
 
-    // Modes
-    // -------------------------------------------------------
-    private static final int READY = 0;
-    private static final int PLAYING = 1;
-    private static final int CRASHED = 2;
-    private static final int MARIO = 3;
-
     // Constants
     // -------------------------------------------------------
-    private static final int FRAME_WIDTH = 500;
-    private static final int FRAME_HEIGHT = 700;
-    private static final int X_VELOCITY = -3; // must be negative to move left
-    public static final int GROUND_LEVEL = 577;
+    public static final int FRAME_WIDTH = World.WIDTH;
+    public static final int FRAME_HEIGHT = 700;
+    public static final int GROUND_LEVEL = World.GROUND_LEVEL;
 
-    private static final double NUM_SCALE = 3.4;
     private static final int BIG_NUM_OVERLAP = 5;
     private static final int SMALL_NUM_OVERLAP = -2; // negative for more spacing
+    private static final double BACKDROP_SPEED = 1 / 8.0; // compared to the pipes
+    private static final int HISTORY_SIZE = 10; // best scores kept with the high score
+    private static final Color LOADING_BACKGROUND = new Color(78, 192, 202);
+    private static final File REPLAY_DIR = new File("replays");
+    private static final int PROFILE_DUMP_SECONDS = 10;
+    private static final int SLOW_ASSETS_REPORTED = 5;
+    private static final File HITCH_DIR = new File("hitches");
+    private static final int RECORDED_FRAMES = 240; // about four seconds at 60 fps
+    private static final int INPUT_CAPACITY = 64;
+    private static final int RESET_HIGH_SCORE = 1 << 8; // handled by the game, not the world
+    private static final int MAX_CATCH_UP_TICKS = 15; // ticks missed for longer than this are dropped
+
+    private static final Rectangle NEW_RESTART_BUTTON = new Rectangle(158, 475, 184, 103);
+    private static final Rectangle OLD_RESTART_BUTTON = new Rectangle(179, 500, 142, 50);
 
     // Instance Variables
     // -------------------------------------------------------
-    private int score;
-    private int highScore;
-    private int mode;
-    private int groundX;
-    private double backdropX;
-    private boolean newHighScore;
-    private boolean newGraphicsEnabled;
-    private boolean dark;
     private StringBuilder keySequence;
-
-    private boolean buttonPressed;
-
-    private final Rectangle bounds;
-    private Rectangle restartButton;
-    private final Image[] BIG_NUMS;
-    private final Image[] SMALL_NUMS;
+    private final InputQueue inputs;
+    private final long[] tickInputs; // times of the inputs used by this tick
+    private int tickInputCount;
+
+    private volatile boolean buttonPressed; // set by the mouse, read by the thread that draws
+
+    private Sprite[] BIG_NUMS;
+    private Sprite[] SMALL_NUMS;
+    private ParallaxLayer backdrop;
+    private ParallaxLayer darkBackdrop;
+    private ParallaxLayer ground;
+    private ParallaxLayer newGround;
+    private final ScoreRenderer scoreRenderer;
+    private final FrameProfiler profiler;
+    private final FlightRecorder recorder;
+    private final Autopilot autopilot;
+    private volatile boolean autopilotEnabled;
+    private final GhostRace ghosts;
+    private final GhostRace.Recorder ghostRecorder;
+    private final int maxGhosts;
+    private CompletableFuture<GhostRace> ghostLoading;
 
     private Resources resources;
-    private Bird bird;
-    private List<Pipe> pipes;
-    private Mario mario;
-    private Pipe marioPipe;
-    private List<Fireball> fireballs;
-    private int marioStartFrame;
+    private ScoreStore scores;
+    private World world;
+
+    // The world is drawn from snapshots of it, published after every tick
+    private final SnapshotBuffer snapshots;
+    private final WorldSnapshot current; // for drawing straight from the world
+    private volatile WorldSnapshot shown; // the snapshot of the last frame, also read by the mouse
+    private volatile Thread simulation;
+    private long tickNanos;
+
+    private final Replay playback;
+    private Replay recording;
+    private File replayFile;
+    private final ExecutorService replayWriter;
+    private boolean playbackReported;
+
+    // Where the game is drawn in the panel, which is scaled to fit
+    private double viewScale = 1;
+    private int viewX;
+    private int viewY;
+
+    private final CompletableFuture<Void> loading;
+    private final AtomicInteger assetsDone; // loaded or failed
+    private final Map<String, Long> assetNanos;
+    private final AtomicInteger assetsFailed;
+    private final long startNanos;
+    private boolean firstFrameDrawn;
 
     // Constructor
     // -------------------------------------------------------
     public FlappyBirdGame() {
-        super("Flappy Bird Plus", FRAME_WIDTH + 15, FRAME_HEIGHT + 30);
-        resources = new Resources();
-        resources.load();
-        highScore = resources.readHighScore();
-        score = 0;
-        mode = READY;
-        groundX = 0;
-        backdropX = 0;
-        newHighScore = false;
-        newGraphicsEnabled = true;
-        dark = Math.random() < 0.5;
+        this(null);
+    }
+
+    /**
+     * Constructs a game that plays back a replay instead of listening to the
+     * keyboard and mouse, or an ordinary game if the replay is {@code null}.
+     * <p>
+     * Pressing F3 shows how long each part of a frame takes, and how long the
+     * player's inputs wait for a tick and for a frame to show them. Running with
+     * {@code -Dflappybird.profile=<file>} also appends these times to a CSV file
+     * every few seconds.
+     * <p>
+     * Key presses and clicks are queued with the time they arrived, and only
+     * change the game at the start of the next tick.
+     * <p>
+     * The last few seconds of frames are always kept, and written to the
+     * {@code hitches} directory when a frame takes longer than
+     * {@code -Dflappybird.hitchMillis} (50 ms by default, 0 to never write them).
+     * <p>
+     * Pressing F2 hands the bird over to the autopilot, and pressing it again
+     * takes it back. Running with {@code -Dflappybird.autopilot=true} starts with
+     * the autopilot on, for attract mode and soak tests.
+     * <p>
+     * Running with {@code -Dflappybird.ghosts=<n>} races the best {@code n}
+     * games from the {@code replays} directory as ghosts, along with every game
+     * played since the game was started.
+     * <p>
+     * The game is laid out at {@code FRAME_WIDTH} by {@code FRAME_HEIGHT}, and
+     * scaled to fill as much of the panel as it can without stretching, so the
+     * window can be resized or made fullscreen. The sprites are scaled once for
+     * each size rather than on every frame.
+     * <p>
+     * After every tick the world is copied into a snapshot, and frames are
+     * always drawn from the latest snapshot. The ticks can therefore run on a
+     * thread of their own with {@link #startSimulation(int)}.
+     * 
+     * @param playback the replay to play back, or {@code null}
+     */
+    public FlappyBirdGame(Replay playback) {
+        super("Flappy Bird Plus", FRAME_WIDTH, FRAME_HEIGHT);
+        this.playback = playback;
+        startNanos = System.nanoTime();
         keySequence = new StringBuilder();
+        inputs = new InputQueue(INPUT_CAPACITY);
+        tickInputs = new long[INPUT_CAPACITY];
+        snapshots = new SnapshotBuffer(INPUT_CAPACITY);
+        current = new WorldSnapshot(0);
+        scoreRenderer = new ScoreRenderer(32);
+        profiler = new FrameProfiler();
+        String profileFile = System.getProperty("flappybird.profile");
+        if (profileFile != null) {
+            profiler.startDumping(new File(profileFile), PROFILE_DUMP_SECONDS);
+        }
+        recorder = new FlightRecorder(RECORDED_FRAMES, Integer.getInteger("flappybird.hitchMillis", 50), HITCH_DIR);
+        autopilot = new Autopilot();
+        autopilotEnabled = Boolean.getBoolean("flappybird.autopilot");
+        ghosts = new GhostRace();
+        ghostRecorder = new GhostRace.Recorder();
+        maxGhosts = (playback == null) ? Integer.getInteger("flappybird.ghosts", 0) : 0;
+        replayWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Replays");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scores = new ScoreStore(new File("high_score.txt"), HISTORY_SIZE);
+        scores.load();
+
+        // Load the images and sounds in the background; the loading screen is
+        // drawn until they have all been tried
+        assetsDone = new AtomicInteger();
+        assetNanos = new ConcurrentHashMap<String, Long>();
+        assetsFailed = new AtomicInteger();
+        resources = new Resources();
+        loading = resources.loadAsync(new Resources.LoadListener() {
+            public void assetLoaded(String name, long nanos, int loaded, int total) {
+                assetNanos.put(name, nanos);
+                assetsDone.incrementAndGet();
+            }
 
-        bounds = new Rectangle(0, 0, FRAME_WIDTH, GROUND_LEVEL);
-        restartButton = new Rectangle(158, 475, 184, 103);
-
-        bird = new Bird();
-        bird.setColor(randomBirdColor());
-        pipes = new ArrayList<Pipe>();
-        pipes.add(new Pipe(bounds, X_VELOCITY));
-        marioPipe = new Pipe(bounds, X_VELOCITY, -330);
-        mario = new Mario(marioPipe);
-        fireballs = new ArrayList<Fireball>();
-        marioStartFrame = -9999;
-
-        BIG_NUMS = new Image[] { 
-                Resources.BIG_ZERO, 
-                Resources.BIG_ONE, 
-                Resources.BIG_TWO, 
-                Resources.BIG_THREE,
-                Resources.BIG_FOUR, 
-                Resources.BIG_FIVE, 
-                Resources.BIG_SIX, 
-                Resources.BIG_SEVEN, 
-                Resources.BIG_EIGHT,
-                Resources.BIG_NINE };
-
-        SMALL_NUMS = new Image[] { 
-                Resources.SMALL_ZERO, 
-                Resources.SMALL_ONE, 
-                Resources.SMALL_TWO,
-                Resources.SMALL_THREE, 
-                Resources.SMALL_FOUR, 
-                Resources.SMALL_FIVE, 
-                Resources.SMALL_SIX,
-                Resources.SMALL_SEVEN, 
-                Resources.SMALL_EIGHT, 
-                Resources.SMALL_NINE };
+            public void assetFailed(String name, Throwable error) {
+                assetsFailed.incrementAndGet();
+                assetsDone.incrementAndGet();
+            }
+        }).thenRun(this::reportSlowAssets);
     }
 
-    // The renderFrame method is the one which is called each time a frame is drawn.
-    // -------------------------------------------------------
-    protected Graphics renderFrame(Graphics g) {
-        // Draw moving backdrop image
-        if (newGraphicsEnabled && dark) {
-            if (mode != CRASHED) {
-                backdropX = (backdropX < -320) ? 0 : backdropX + X_VELOCITY / 8.0d;
-            }
-            g.drawImage(Resources.DARK_BACKDROP_IMAGE, (int) backdropX, 0, this);
+    /**
+     * Prints the assets that took the longest to load, and how many failed, once
+     * loading is over.
+     */
+    private void reportSlowAssets() {
+        List<Map.Entry<String, Long>> times = new ArrayList<Map.Entry<String, Long>>(assetNanos.entrySet());
+        times.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        StringBuilder report = new StringBuilder("Slowest assets:");
+        int count = Math.min(SLOW_ASSETS_REPORTED, times.size());
+        for (int i = 0; i < count; i++) {
+            report.append(i == 0 ? " " : ", ").append(times.get(i).getKey());
+            report.append(String.format(" %.1f ms", times.get(i).getValue() / 1e6));
+        }
+        if (assetsFailed.get() > 0) {
+            report.append("; ").append(assetsFailed.get()).append(" failed to load");
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * Waits until all of the resources are loaded and the game can start. The
+     * game starts by itself on the first tick after loading is over, so this is
+     * only needed when the game is driven without a {@code GameLoop}.
+     */
+    public void awaitLoaded() {
+        loading.join();
+        startGame();
+    }
+
+    /**
+     * Returns the world being played, or {@code null} while the resources are
+     * still loading. The world must only be used on the thread that runs the
+     * ticks.
+     *
+     * @return the world
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Creates the world once the resources it draws with are loaded. Running with
+     * {@code -Dflappybird.daily=true} plays the course of the day on every run.
+     */
+    private void startGame() {
+        if (world != null) {
+            return;
+        }
+        if (playback != null) {
+            world = playback.createWorld();
+            world.setHighScore(scores.getHighScore());
+            playback.rewind();
         } else {
-            if (mode != CRASHED) {
-                backdropX = (backdropX < -240) ? 0 : backdropX + X_VELOCITY / 8.0d;
+            long seed = new Random().nextLong();
+            if (Boolean.getBoolean("flappybird.daily")) {
+                world = new World(scores.getHighScore(), seed, CourseGenerator.dailySeed());
+            } else {
+                world = new World(scores.getHighScore(), seed);
             }
-            g.drawImage(Resources.BACKDROP_IMAGE, (int) backdropX, 0, this);
-        }
-
-        // Detect when the bird hits the ground
-        if (bird.getY() + bird.getHeight() >= GROUND_LEVEL && (mode == PLAYING || mode == MARIO)) {
-            crash();
-        }
-
-        if (mode == MARIO) {
-            int frameDifference = frameNumber - marioStartFrame;
-            final int f = 160;
-            final int j = f + 60;
-            List<Integer> fireballFrames = Arrays.asList(f, f + 10, f + 20, j + 60, j + 70, j + 80);
-            List<Integer> standingFrames = Arrays.asList(f + 5, f + 15, f + 25, j + 65, j + 75, j + 85);
-            if (fireballFrames.contains(frameDifference)) {
-                fireball();
-                mario.animateThrow();
-            } else if (standingFrames.contains(frameDifference)) {
-                mario.stand();
-            } else if (frameDifference == j) {
-                mario.jump();
-            } else if (frameDifference == j + 130) {
-                mario.finalJump();
+            recording = new Replay(world);
+            replayFile = new File(REPLAY_DIR, new SimpleDateFormat("'replay-'yyyyMMdd-HHmmss'.fbr'").format(new Date()));
+            if (maxGhosts > 0) {
+                ghostLoading = CompletableFuture.supplyAsync(() -> GhostRace.fromReplays(REPLAY_DIR, maxGhosts),
+                        replayWriter);
             }
+        }
 
-            // Fireballs
-            for (Fireball fireball : fireballs) {
-                if (bird.intersects(fireball.getBounds())) {
-                    crash();
-                }
-                fireball.update();
-                fireball.draw(g, this);
-            }
+        // The periods are the widths after which each image repeats
+        backdrop = new ParallaxLayer(Resources.getSprite("backdrop"), 240, BACKDROP_SPEED, 0, FRAME_WIDTH, 4);
+        darkBackdrop = new ParallaxLayer(Resources.getSprite("new_backdrop"), 320, BACKDROP_SPEED, 0, FRAME_WIDTH, 4);
+        ground = new ParallaxLayer(Resources.getSprite("ground"), 24, 1, GROUND_LEVEL, FRAME_WIDTH, 1);
+        newGround = new ParallaxLayer(Resources.getSprite("new_ground"), 69, 1, GROUND_LEVEL, FRAME_WIDTH, 1);
+
+        BIG_NUMS = new Sprite[10];
+        SMALL_NUMS = new Sprite[10];
+        for (int i = 0; i <= 9; i++) {
+            BIG_NUMS[i] = Resources.getSprite("font_big_" + i);
+            SMALL_NUMS[i] = Resources.getSprite("font_small_" + i);
+        }
+    }
+
+    /**
+     * Runs the ticks on a thread of their own at a fixed rate, instead of in
+     * {@link #tick()}. Drawing then never holds up a tick, and a slow tick, such
+     * as one that saves a high score, never holds up drawing. Each frame is
+     * drawn from the latest snapshot, in between its tick and the one before by
+     * how long ago it was published.
+     * 
+     * @param tickRate the ticks per second
+     */
+    public void startSimulation(int tickRate) {
+        if (simulation != null) {
+            return;
+        }
+        tickNanos = 1000000000L / tickRate;
+        Thread thread = new Thread(this::simulate, "Simulation");
+        thread.setDaemon(true);
+        simulation = thread;
+        thread.start();
+    }
 
-            // If Mario lands on the bird, Mario jumps off it and game ends
-            if (bird.intersects(mario.getBounds())) {
-                mario.jump();
-                crash();
+    /**
+     * Steps the game on the simulation thread at the tick rate. Like the
+     * {@code GameLoop}, it catches up on ticks that were late, but not on more
+     * than a few. A tick that throws would only throw again on the same world,
+     * so the first failure is reported and the simulation stops there.
+     */
+    private void simulate() {
+        long next = System.nanoTime();
+        while (true) {
+            long wait;
+            while ((wait = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            try {
+                step();
+            } catch (RuntimeException e) {
+                System.err.println("Tick failed, stopping the simulation");
+                e.printStackTrace();
+                return;
             }
+            next += tickNanos;
+            if (System.nanoTime() - next > MAX_CATCH_UP_TICKS * tickNanos) {
+                next = System.nanoTime();
+            }
+        }
+    }
 
-            mario.update();
-            mario.draw(g, this);
+    // The tick method is called at a fixed rate to move the game forward,
+    // unless the ticks run on their own thread.
+    // -------------------------------------------------------
+    public void tick() {
+        if (simulation == null) {
+            step();
+        }
+    }
 
-            if (mario.isFinished()) {
-                mode = PLAYING;
+    /**
+     * Advances the game by one tick and publishes a snapshot of it.
+     */
+    private void step() {
+        if (world == null) {
+            if (!loading.isDone()) {
+                return;
             }
+            startGame();
         }
 
-        for (Pipe pipe : pipes) {
-            // Draw the pipes (draw these after the backdrop)
-            if (mode == PLAYING || mode == MARIO) {
-                pipe.update();
+        // Take this tick's input from the replay, or from the player and the
+        // autopilot, and record it
+        long start = System.nanoTime();
+        int tickInput;
+        if (playback != null) {
+            tickInput = playback.next();
+        } else {
+            tickInput = takeInputs(start);
+            if ((tickInput & RESET_HIGH_SCORE) != 0) {
+                world.setHighScore(0);
+                scores.reset();
+                tickInput &= ~RESET_HIGH_SCORE;
             }
-            pipe.draw(g, this, newGraphicsEnabled);
-
-            // Increment the score when the bird passes between a pair of pipes
-            if (pipe.getPreviousX() > bird.getX() && pipe.getX() <= bird.getX() && (mode == PLAYING || mode == MARIO)) {
-                score++;
-                playSound(Resources.SCORE_SOUND);
-                if ((score + 3) % 50 == 0) {
-                    mode = MARIO;
-                }
+            if (autopilotEnabled) {
+                tickInput |= autopilot.decide(world);
             }
-
-            // Detect when the bird crashes into a pipe
-            if ((bird.intersects(pipe.getUpperBound()) || bird.intersects(pipe.getLowerBound()))
-                    && (mode == PLAYING || mode == MARIO)) {
-                crash();
+            // Only record what the world will act on
+            if (world.getMode() == World.CRASHED) {
+                tickInput &= ~World.FLAP;
+            } else {
+                tickInput &= ~World.RESTART;
             }
+            recording.record(tickInput);
+        }
 
-            // Have Mario appear out of the pipe
-            if (pipe.equals(marioPipe)) {
-                if (mode == MARIO && pipe.getXVel() != 0 && pipe.getX() < FRAME_WIDTH - 185) {
-                    pipe.setXVel(0);
-                    mario.start();
-                    marioStartFrame = frameNumber;
-                } else if (mode == PLAYING && pipe.getXVel() == 0) {
-                    pipe.setXVel(X_VELOCITY);
-                }
+        // Advance the game by one tick, then handle what happened during it
+        world.step(tickInput);
+        ghostRecorder.tick(world, (maxGhosts > 0) ? ghosts : null);
+        if (ghostLoading != null && ghostLoading.isDone()) {
+            try {
+                ghosts.addAll(ghostLoading.join());
+            } catch (CompletionException e) {
+                System.err.println("Could not load the ghosts from " + REPLAY_DIR);
+                e.printStackTrace();
             }
+            ghostLoading = null;
         }
+        start = profiler.lap(FrameProfiler.UPDATE, start);
+        handleEvents(world.getEvents());
+        profiler.lap(FrameProfiler.AUDIO, start);
+        publish();
+
+        if (playback != null && playback.isFinished() && !playbackReported) {
+            playbackReported = true;
+            System.out.println("Replay finished with score " + world.getScore() + ", recorded with "
+                    + playback.getFinalScore());
+        }
+    }
 
-        // Add new pipe when previous pipe is far enough
-        Pipe lastPipe = pipes.get(pipes.size() - 1);
-        if (mode == PLAYING && lastPipe.getX() < FRAME_WIDTH - 80) {
-            pipes.add(new Pipe(bounds, X_VELOCITY));
-        } else if (mode == MARIO && lastPipe.getX() < FRAME_WIDTH - 200) {
-            pipes.add(marioPipe);
+    /**
+     * Takes the player's inputs that have arrived since the last tick, and
+     * records how long each one waited. An input that is already in this tick,
+     * such as a second flap between two ticks, is left for the next tick, so
+     * every flap gets a tick of its own.
+     * 
+     * @param now the {@code System.nanoTime()} the tick started at
+     * @return the input bits for this tick
+     */
+    private int takeInputs(long now) {
+        int tickInput = 0;
+        while (inputs.peek() && (tickInput & inputs.getInput()) == 0) {
+            tickInput |= inputs.getInput();
+            profiler.record(FrameProfiler.INPUT_TO_TICK, now - inputs.getTime());
+            if (tickInputCount < tickInputs.length) {
+                tickInputs[tickInputCount++] = inputs.getTime();
+            }
+            inputs.remove();
         }
+        return tickInput;
+    }
 
-        // Remove pipes that have gone off-screen
-        Pipe firstPipe = pipes.get(0);
-        if (firstPipe.getX() < -firstPipe.getWidth()) {
-            pipes.remove(firstPipe);
+    /**
+     * Copies the world into the next snapshot with the times of this tick's
+     * inputs, and publishes it. If the snapshot was last published but never
+     * drawn, its input times are kept, since they haven't been shown yet.
+     */
+    private void publish() {
+        WorldSnapshot snapshot = snapshots.getBack();
+        if (!snapshots.isBackSkipped()) {
+            snapshot.clearInputTimes();
         }
+        snapshot.capture(world, ghostRecorder.getTicks(), System.nanoTime());
+        for (int i = 0; i < tickInputCount; i++) {
+            snapshot.addInputTime(tickInputs[i]);
+        }
+        tickInputCount = 0;
+        snapshots.publish();
+    }
 
-        // Draw the moving ground (draw this after the pipes)
-        if (newGraphicsEnabled) {
-            if (mode != CRASHED) {
-                groundX = (groundX < -30) ? 0 : groundX + X_VELOCITY;
+    // The renderFrame method is the one which is called each time a frame is drawn.
+    // -------------------------------------------------------
+    protected Graphics renderFrame(Graphics g) {
+        Graphics2D view = createView(g);
+        if (view == null) {
+            return g;
+        }
+        WorldSnapshot snapshot = snapshots.latest();
+        if (snapshot == null) {
+            drawLoadingScreen(view);
+            if (view != g) {
+                view.dispose();
             }
-            g.drawImage(Resources.NEW_GROUND_IMAGE, groundX, GROUND_LEVEL, this);
+            return g;
+        }
+        long start = System.nanoTime();
+        double alpha = interpolation;
+        if (simulation != null) {
+            alpha = Math.min((start - snapshot.getTime()) / (double) tickNanos, 1);
+        }
+        drawWorld(view, snapshot, alpha);
+        if (view != g) {
+            view.dispose();
+        }
+        long drawn = System.nanoTime();
+        if (snapshot != shown) {
+            for (int i = 0; i < snapshot.getInputCount(); i++) {
+                profiler.record(FrameProfiler.INPUT_TO_FRAME, drawn - snapshot.getInputTime(i));
+            }
+            shown = snapshot;
+        }
+        profiler.frameDrawn(start);
+        recorder.frameDrawn(start, snapshot);
+        profiler.drawOverlay(g, this);
+        if (!firstFrameDrawn) {
+            firstFrameDrawn = true;
+            long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.printf("First frame %.1f ms after the game was created, %d ms after the JVM started%n",
+                    (System.nanoTime() - startNanos) / 1e6, System.currentTimeMillis() - jvmStart);
+        }
+        return g;
+    }
+    // --end of renderFrame method--
+
+    /**
+     * Works out where the game fits in the panel, fills the rest of the panel
+     * with black, and returns a {@code Graphics} to draw the game on. When the
+     * panel is the size of the game, that is the panel's own {@code Graphics}.
+     * 
+     * @param g the {@code Graphics} object of the panel
+     * @return the {@code Graphics} object to draw the game on, or {@code null}
+     *         if the panel has no room for it
+     */
+    private Graphics2D createView(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        viewScale = Math.min((double) width / FRAME_WIDTH, (double) height / FRAME_HEIGHT);
+        if (viewScale <= 0) {
+            return null;
+        }
+        int scaledWidth = Sprite.scaledSize(FRAME_WIDTH, viewScale);
+        int scaledHeight = Sprite.scaledSize(FRAME_HEIGHT, viewScale);
+        viewX = (width - scaledWidth) / 2;
+        viewY = (height - scaledHeight) / 2;
+        if (viewScale == 1 && viewX == 0 && viewY == 0) {
+            return (Graphics2D) g;
+        }
+
+        // Only the bars around the game are filled; the game covers the rest
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, viewX, height);
+        g.fillRect(viewX + scaledWidth, 0, width - viewX - scaledWidth, height);
+        g.fillRect(viewX, 0, scaledWidth, viewY);
+        g.fillRect(viewX, viewY + scaledHeight, scaledWidth, height - viewY - scaledHeight);
+
+        Graphics2D view = (Graphics2D) g.create(viewX, viewY, scaledWidth, scaledHeight);
+        view.scale(viewScale, viewScale);
+        return view;
+    }
+
+    /**
+     * Converts a point in the panel to a point in the game, which is laid out at
+     * {@code FRAME_WIDTH} by {@code FRAME_HEIGHT}.
+     * 
+     * @param p the point in the panel
+     * @return the point in the game
+     */
+    private Point toGame(Point p) {
+        return new Point((int) Math.floor((p.x - viewX) / viewScale), (int) Math.floor((p.y - viewY) / viewScale));
+    }
+
+    /**
+     * Draws a progress bar for the resources that are still loading.
+     * 
+     * @param g the {@code Graphics} object to be drawn on
+     */
+    private void drawLoadingScreen(Graphics g) {
+        int total = Math.max(resources.getAssetCount(), 1);
+        int barWidth = 300;
+        int barX = (FRAME_WIDTH - barWidth) / 2;
+        int barY = FRAME_HEIGHT / 2;
+
+        g.setColor(LOADING_BACKGROUND);
+        g.fillRect(0, 0, FRAME_WIDTH, FRAME_HEIGHT);
+        g.setColor(Color.WHITE);
+        g.drawString("Loading...", barX, barY - 10);
+        g.drawRect(barX, barY, barWidth, 20);
+        g.fillRect(barX, barY, barWidth * assetsDone.get() / total, 20);
+    }
+
+    /**
+     * Draws the current state of the world, in between the last two ticks
+     * according to the panel's {@code interpolation}. This does not change the
+     * state of the game in any way, and must only be called on the thread that
+     * runs the ticks.
+     * 
+     * @param g the {@code Graphics} object to be drawn on
+     */
+    public void drawWorld(Graphics g) {
+        current.capture(world, ghostRecorder.getTicks(), System.nanoTime());
+        drawWorld(g, current, interpolation);
+    }
+
+    /**
+     * Draws a snapshot of the world, in between its tick and the one before.
+     * 
+     * @param g        the {@code Graphics} object to be drawn on
+     * @param snapshot the snapshot to draw
+     * @param alpha    how far between the two ticks to draw, from 0 to 1
+     */
+    public void drawWorld(Graphics g, WorldSnapshot snapshot, double alpha) {
+        long phaseStart = System.nanoTime();
+        int mode = snapshot.getMode();
+        int score = snapshot.getScore();
+        int highScore = snapshot.getHighScore();
+        boolean newGraphicsEnabled = snapshot.isNewGraphicsEnabled();
+
+        // Draw moving backdrop image
+        double scroll = snapshot.getLastScrollX() + (snapshot.getScrollX() - snapshot.getLastScrollX()) * alpha;
+        if (newGraphicsEnabled && snapshot.isDark()) {
+            darkBackdrop.draw(g, scroll, this);
         } else {
-            if (mode != CRASHED) {
-                groundX = (groundX < -20) ? 0 : groundX + X_VELOCITY;
+            backdrop.draw(g, scroll, this);
+        }
+        phaseStart = profiler.lap(FrameProfiler.BACKDROP, phaseStart);
+
+        if (mode == World.MARIO) {
+            for (int i = 0; i < snapshot.getFireballCount(); i++) {
+                snapshot.getFireball(i).draw(g, this, alpha);
             }
-            g.drawImage(Resources.GROUND_IMAGE, groundX, GROUND_LEVEL, this);
+            snapshot.getMario().draw(g, this, alpha);
         }
 
-        // Draw and animate the bird (do this after pipes and ground)
-        if (!newGraphicsEnabled) {
-            bird.setColor(Color.YELLOW);
+        // Draw the pipes (draw these after the backdrop)
+        for (int i = 0; i < snapshot.getPipeCount(); i++) {
+            snapshot.getPipe(i).draw(g, this, newGraphicsEnabled, alpha);
         }
-        switch (mode) {
-            case READY:
-                if (frameNumber % 7 == 0) {
-                    bird.animate();
-                }
-                break;
-            case MARIO:
-            case PLAYING:
-                if (frameNumber % 7 == 0) {
-                    bird.animate();
-                }
-                bird.update(bounds);
-                break;
-            case CRASHED:
-                bird.update(bounds);
-                break;
+        phaseStart = profiler.lap(FrameProfiler.PIPES, phaseStart);
+
+        // Draw the moving ground (draw this after the pipes)
+        if (newGraphicsEnabled) {
+            newGround.draw(g, scroll, this);
+        } else {
+            ground.draw(g, scroll, this);
         }
-        bird.draw(g, this);
+        phaseStart = profiler.lap(FrameProfiler.GROUND, phaseStart);
 
-//		g.setColor(Color.BLACK);
-//		g.drawString("ArcadeEngine 2008", 10, 12);
-//		g.drawString("frame=" + mouseX, 200, 12);
-//		g.drawString("frame=" + mouseY, 200, 26);
+        // Draw the ghosts, then the bird on top of them (do this after pipes and ground)
+        ghosts.draw(g, snapshot.getBird().getX(), snapshot.getGhostTicks(), alpha, this);
+        snapshot.getBird().draw(g, this, alpha);
+        phaseStart = profiler.lap(FrameProfiler.BIRD, phaseStart);
 
         g.setColor(Color.WHITE);
         g.setFont(Resources.FONT);
-        FontMetrics metrics = g.getFontMetrics();
 
-        if (mode == CRASHED) {
+        if (mode == World.CRASHED) {
             // Draw the Game Over screen
             if (newGraphicsEnabled) {
-                g.drawImage(Resources.NEW_GAME_OVER_TEXT, 80, 115, 340, 74, this);
-                g.drawImage(Resources.NEW_GAME_OVER_MIDDLE, 50, 230, 400, 202, this);
+                Resources.getSprite("new_game_over_text").draw(g, 80, 115, this);
+                Resources.getSprite("new_game_end_middle").draw(g, 50, 230, this);
                 if (buttonPressed) {
-                    g.drawImage(Resources.REPLAY_BUTTON_IMAGE, 158, 478, 184, 103, this);
+                    Resources.getSprite("replay_button").draw(g, 158, 478, this);
                 } else {
-                    g.drawImage(Resources.REPLAY_BUTTON_IMAGE, 158, 475, 184, 103, this);
+                    Resources.getSprite("replay_button").draw(g, 158, 475, this);
                 }
             } else {
-                g.drawImage(Resources.GAME_OVER_TEXT, 84, 130, 333, 67, this);
-                g.drawImage(Resources.GAME_OVER_MIDDLE, 50, 232, 400, 202, this);
+                Resources.getSprite("game_over_text").draw(g, 84, 130, this);
+                Resources.getSprite("game_end_middle").draw(g, 50, 232, this);
                 if (buttonPressed) {
-                    g.drawImage(Resources.OK_BUTTON_IMAGE, 179, 503, 142, 50, this);
+                    Resources.getSprite("ok_button").draw(g, 179, 503, this);
                 } else {
-                    g.drawImage(Resources.OK_BUTTON_IMAGE, 179, 500, 142, 50, this);
+                    Resources.getSprite("ok_button").draw(g, 179, 500, this);
                 }
             }
 
@@ -310,18 +647,18 @@ public class FlappyBirdGame extends AnimationPanel {
             int medalX = 96;
             int medalY = 305;
             if (highScore >= 40) {
-                g.drawImage(Resources.PLATINUM_MEDAL, medalX, medalY, 77, 77, this);
+                Resources.getSprite("platinum_medal").draw(g, medalX, medalY, this);
             } else if (highScore >= 30) {
-                g.drawImage(Resources.GOLD_MEDAL, medalX, medalY, 77, 77, this);
+                Resources.getSprite("gold_medal").draw(g, medalX, medalY, this);
             } else if (highScore >= 20) {
-                g.drawImage(Resources.SILVER_MEDAL, medalX, medalY, 77, 77, this);
+                Resources.getSprite("silver_medal").draw(g, medalX, medalY, this);
             } else if (highScore >= 10) {
-                g.drawImage(Resources.BRONZE_MEDAL, medalX, medalY, 77, 77, this);
+                Resources.getSprite("bronze_medal").draw(g, medalX, medalY, this);
             }
 
             // Draw the "new" label if it's a new high score
-            if (newHighScore) {
-                g.drawImage(Resources.NEW_BEST_IMAGE, 290, 333, 57, 25, this);
+            if (snapshot.isNewHighScore()) {
+                Resources.getSprite("new_best").draw(g, 290, 333, this);
             }
         } else {
             // Draw the score
@@ -334,24 +671,22 @@ public class FlappyBirdGame extends AnimationPanel {
             }
 
             // Draw the Get Ready text
-            if (mode == READY) {
+            if (mode == World.READY) {
                 if (newGraphicsEnabled) {
-                    g.drawImage(Resources.NEW_READY_TEXT, 88, 160, 325, 88, this);
+                    Resources.getSprite("new_get_ready").draw(g, 88, 160, this);
                 } else {
-                    g.drawImage(Resources.READY_TEXT, 100, 145, 300, 76, this);
+                    Resources.getSprite("get_ready").draw(g, 100, 145, this);
                 }
             }
         }
-
-        return g;
+        profiler.lap(FrameProfiler.HUD, phaseStart);
     }
-    // --end of renderFrame method--
 
     /**
      * Returns the width, in pixels, of a number drawn with images for each of its
      * digits and a specified overlap between each digit.
      * <p>
-     * An {@code Image} array must be specified that contains an image for each
+     * A {@code Sprite} array must be specified that contains an image for each
      * digit, in the order 0-9.
      * <p>
      * When specifying the overlap, a larger number creates more overlap. This means
@@ -362,28 +697,17 @@ public class FlappyBirdGame extends AnimationPanel {
      * @param overlap   the amount to overlap, in pixels
      * @return the total width of the drawn score
      */
-    public int getScoreImgLen(int score, Image[] numImages, int overlap) {
-        int scoreLen = 0;
-        String[] scoreDigits = Integer.toString(score).split("");
-
-        Image[] digitImages = new Image[scoreDigits.length];
-        for (int i = 0; i < digitImages.length; i++) {
-            int digit = Integer.parseInt(scoreDigits[i]);
-            digitImages[i] = numImages[digit];
-            scoreLen += digitImages[i].getWidth(this);
-        }
-
-        scoreLen *= NUM_SCALE;
-        scoreLen -= (scoreDigits.length - 1) * overlap;
-        return scoreLen;
+    public int getScoreImgLen(int score, Sprite[] numImages, int overlap) {
+        return ScoreRenderer.getWidth(score, numImages, overlap);
     }
 
     /**
      * Draws a number to the screen with images for each of its digits and a
      * specified overlap between each digit.
      * <p>
-     * An {@code Image} array must be specified that contains an image for each
-     * digit, in the order 0-9.
+     * A {@code Sprite} array must be specified that contains an image for each
+     * digit, in the order 0-9. The sprites are expected to be scaled by
+     * {@code NUM_SCALE} already.
      * <p>
      * When specifying the overlap, a larger number creates more overlap. This means
      * that a negative overlap adds space between each digit.
@@ -396,64 +720,44 @@ public class FlappyBirdGame extends AnimationPanel {
      * @param g         the {@code Graphics} object to be drawn on
      * @param io        the {@code ImageObserver} object to be notified
      */
-    public void drawScore(int score, int x, int y, Image[] numImages, int overlap, Graphics g, ImageObserver io) {
-        String[] scoreDigits = Integer.toString(score).split("");
+    public void drawScore(int score, int x, int y, Sprite[] numImages, int overlap, Graphics g, ImageObserver io) {
+        scoreRenderer.draw(score, x, y, numImages, overlap, g, io);
+    }
 
-        Image[] digitImages = new Image[scoreDigits.length];
-        for (int i = 0; i < digitImages.length; i++) {
-            int digit = Integer.parseInt(scoreDigits[i]);
-            digitImages[i] = numImages[digit];
+    /**
+     * Plays the sounds requested by the world during the last tick, and records
+     * the score when a game is over.
+     * 
+     * @param events the event bits reported by the world
+     */
+    private void handleEvents(int events) {
+        if ((events & World.GAME_OVER) != 0 && playback == null) {
+            scores.record(world.getScore());
+            saveReplay();
         }
-
-        int digitX = x;
-        for (Image img : digitImages) {
-            g.drawImage(img, digitX, y, (int) (NUM_SCALE * img.getWidth(io)), (int) (NUM_SCALE * img.getHeight(io)),
-                    io);
-            digitX += NUM_SCALE * img.getWidth(io) - overlap;
+        if ((events & World.SOUND_DIE) != 0) {
+            playSound(Resources.DIE_SOUND);
         }
-    }
-
-    public void crash() {
-        mode = CRASHED;
-        if (score > highScore) {
-            newHighScore = true;
-            highScore = score;
-            resources.writeHighScore(score);
+        if ((events & World.SOUND_HIT) != 0) {
+            playSound(Resources.HIT_SOUND);
         }
-        playSound(Resources.DIE_SOUND);
-        playSound(Resources.HIT_SOUND);
-    }
-
-    public void fireball() {
-        double dx = bird.getX() - mario.getX();
-        double dy = bird.getY() - mario.getY();
-        double dir = Math.atan2(dy, dx);
-        int vel = 10;
-        fireballs.add(new Fireball(mario.getX(), mario.getY(), vel * Math.cos(dir), vel * Math.sin(dir)));
-        mario.animateThrow();
-    }
-
-    public void restart() {
-        score = 0;
-        mode = READY;
-        newHighScore = false;
-        dark = Math.random() < 0.5;
-        bird.reset();
-        bird.setColor(randomBirdColor());
-        pipes.clear();
-        pipes.add(new Pipe(bounds, X_VELOCITY));
-        playSound(Resources.SWOOSH_SOUND);
-    }
-
-    public Color randomBirdColor() {
-        int random = (int) (Math.random() * 3);
-        switch (random) {
-            case 0:
-                return Color.YELLOW;
-            case 1:
-                return Color.BLUE;
-            default:
-                return Color.RED;
+        if ((events & World.SOUND_SCORE) != 0) {
+            playSound(Resources.SCORE_SOUND);
+        }
+        if ((events & World.SOUND_SWOOSH) != 0) {
+            playSound(Resources.SWOOSH_SOUND);
+        }
+        if ((events & World.SOUND_FLY) != 0) {
+            playSound(Resources.FLY_SOUND);
+        }
+        if ((events & World.SOUND_MARIO_FIREBALL) != 0) {
+            playSound(Resources.MARIO_FIREBALL_SOUND);
+        }
+        if ((events & World.SOUND_MARIO_JUMP) != 0) {
+            playSound(Resources.MARIO_JUMP_SOUND);
+        }
+        if ((events & World.SOUND_MARIO_PIPE) != 0) {
+            playSound(Resources.MARIO_PIPE_SOUND);
         }
     }
 
@@ -461,17 +765,23 @@ public class FlappyBirdGame extends AnimationPanel {
     // Respond to Mouse Events
     // -------------------------------------------------------
     public void mouseClicked(MouseEvent e) {
-        Point p = e.getPoint();
+        if (shown == null || playback != null) {
+            return;
+        }
+        Point p = toGame(e.getPoint());
 
-        if (restartButton.contains(p) && mode == CRASHED) {
-            restart();
+        if (getRestartButton().contains(p)) {
+            inputs.add(World.RESTART);
         }
     }
 
     public void mousePressed(MouseEvent e) {
-        Point p = e.getPoint();
+        if (shown == null) {
+            return;
+        }
+        Point p = toGame(e.getPoint());
 
-        buttonPressed = restartButton.contains(p);
+        buttonPressed = getRestartButton().contains(p);
     }
 
     public void mouseReleased(MouseEvent e) {
@@ -482,15 +792,14 @@ public class FlappyBirdGame extends AnimationPanel {
     // Respond to Keyboard Events
     // -------------------------------------------------------
     public void keyTyped(KeyEvent e) {
+        if (shown == null || playback != null) {
+            return;
+        }
         char c = e.getKeyChar();
 
         // Make the bird fly up when spacebar is pressed
-        if (c == ' ' && mode != CRASHED) {
-            bird.fly();
-            playSound(Resources.FLY_SOUND);
-            if (mode == READY) {
-                mode = PLAYING;
-            }
+        if (c == ' ') {
+            inputs.add(World.FLAP);
         } else {
             // Restart the sequence when j or r is typed
             if (c == 'j' || c == 'r') {
@@ -502,24 +811,52 @@ public class FlappyBirdGame extends AnimationPanel {
 
         // Toggle old/new graphics
         if (keySequence.toString().equals("jiaxuan")) {
-            newGraphicsEnabled = !newGraphicsEnabled;
+            inputs.add(World.TOGGLE_GRAPHICS);
             keySequence.setLength(0);
-
-            if (newGraphicsEnabled) {
-                restartButton = new Rectangle(158, 475, 184, 103);
-            } else {
-                restartButton = new Rectangle(179, 500, 142, 50);
-            }
         }
         // Reset the high score
         else if (keySequence.toString().equals("reset")) {
-            highScore = 0;
-            resources.writeHighScore(0);
+            inputs.add(RESET_HIGH_SCORE);
         }
     }
 
-    public void keyPressed(KeyEvent e) {
+    /**
+     * Returns the area of the restart button, which depends on the graphics of
+     * the frame on the screen.
+     * 
+     * @return the restart button's area
+     */
+    private Rectangle getRestartButton() {
+        return shown.isNewGraphicsEnabled() ? NEW_RESTART_BUTTON : OLD_RESTART_BUTTON;
+    }
 
+    /**
+     * Saves the replay of this session so far, in the background. The same file
+     * is written over at the end of every game, so it always holds the whole
+     * session.
+     */
+    private void saveReplay() {
+        recording.setFinalScore(world.getScore());
+        final Replay snapshot = recording.copy();
+        final File file = replayFile;
+        replayWriter.execute(() -> {
+            try {
+                REPLAY_DIR.mkdirs();
+                snapshot.write(file);
+            } catch (IOException e) {
+                System.err.println("Could not save the replay to " + file);
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public void keyPressed(KeyEvent e) {
+        // F2 turns the autopilot on or off, and F3 shows or hides the frame times
+        if (e.getKeyCode() == KeyEvent.VK_F2) {
+            autopilotEnabled = !autopilotEnabled;
+        } else if (e.getKeyCode() == KeyEvent.VK_F3) {
+            profiler.setOverlayVisible(!profiler.isOverlayVisible());
+        }
     }
 
     public void keyReleased(KeyEvent e) {
@@ -527,13 +864,13 @@ public class FlappyBirdGame extends AnimationPanel {
     }
 
     /**
-     * Plays the audio from a {@code Clip} object.
+     * Plays a sound effect through the mixer. This returns straight away, and the
+     * same sound can be played again while it is still playing.
      * 
-     * @param clip the {@code Clip} to play
+     * @param sound the number of the sound to play
      */
-    public void playSound(Clip clip) {
-        clip.setFramePosition(0);
-        clip.start();
+    public void playSound(int sound) {
+        Resources.MIXER.play(sound);
     }
 
 //++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
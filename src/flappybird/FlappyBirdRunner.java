@@ -7,16 +7,22 @@ package flappybird;
  * @author Travis Rother 
  * @version 2-25-2008
  */
-import java.awt.event.*;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.swing.JFrame;
 
 import arcade.AnimationPanel;
+import arcade.CanvasRunner;
+import arcade.GameLoop;
 
 public class FlappyBirdRunner 
 {
 
-    int FPS = 60;   //Frames per second (animation speed)
-    AnimationPanel world = new FlappyBirdGame();
+    int TPS = 60;   //Ticks per second (game speed)
+    int FPS = 60;   //Frames per second (how often the screen is painted, 0 for as fast as possible)
+    AnimationPanel world;
     
     
     
@@ -26,13 +32,16 @@ public class FlappyBirdRunner
     
     JFrame myFrame;
 
-    public FlappyBirdRunner() 
+    private static final Pattern DISPLAY_MODE = Pattern.compile("(\\d+)x(\\d+)(?:@(\\d+))?");
+
+    public FlappyBirdRunner(AnimationPanel world) 
     {
+        this.world = world;
         myFrame = new JFrame();
         myFrame.addWindowListener(new Closer());
         addFrameComponents();
         startAnimation();
-        myFrame.setSize(world.getPreferredSize());
+        myFrame.pack();     //the game is its preferred size, and the window fits around it
         myFrame.setVisible(true);
     }
 
@@ -44,21 +53,52 @@ public class FlappyBirdRunner
     
     public void startAnimation() 
     {
-        javax.swing.Timer t = new javax.swing.Timer(1000/FPS, new ActionListener() 
-        {   //This is something you may not have seen before...
-            //We are coding a method within the ActionListener object during it's construction!
-            public void actionPerformed(ActionEvent e) 
-            {
-                myFrame.getComponent(0).repaint();
-                myFrame.setSize(myFrame.getComponent(0).getPreferredSize());
-            }
-        }); //--end of construction of Timer--
-        t.start();
+        //The window is laid out once, so it can be resized or maximized afterwards
+        GameLoop loop = new GameLoop(world, TPS, FPS);
+        loop.start();
     }
     
-    public static void main(String[] args) 
+    //Pass the name of a replay file to watch it instead of playing.
+    //-Dflappybird.canvas=true draws on a canvas with page flipping instead of through Swing,
+    //and -Dflappybird.fullscreen=true also takes over the screen, optionally switching it
+    //to -Dflappybird.displayMode=<width>x<height>[@<refresh rate>].
+    //-Dflappybird.simThread=true runs the ticks on their own thread instead of in the frames
+    public static void main(String[] args) throws java.io.IOException
     {
-        FlappyBirdRunner runner = new FlappyBirdRunner();
+        FlappyBirdGame game;
+        if (args.length > 0) 
+        {
+            game = new FlappyBirdGame(Replay.read(new java.io.File(args[0])));
+        } 
+        else 
+        {
+            game = new FlappyBirdGame();
+        }
+        if (Boolean.getBoolean("flappybird.simThread"))
+            game.startSimulation(60);
+
+        boolean fullScreen = Boolean.getBoolean("flappybird.fullscreen");
+        if (fullScreen || Boolean.getBoolean("flappybird.canvas"))
+        {
+            DisplayMode mode = null;
+            String wanted = System.getProperty("flappybird.displayMode");
+            if (wanted != null && !GraphicsEnvironment.isHeadless())
+            {
+                Matcher m = DISPLAY_MODE.matcher(wanted);
+                if (m.matches())
+                {
+                    mode = CanvasRunner.chooseDisplayMode(
+                            GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice(),
+                            Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)),
+                            m.group(3) == null ? 0 : Integer.parseInt(m.group(3)));
+                }
+                if (mode == null)
+                    System.out.println("No display mode " + wanted + ", keeping the current one");
+            }
+            new CanvasRunner(game, 60, 60, fullScreen, mode);
+            return;
+        }
+        FlappyBirdRunner runner = new FlappyBirdRunner(game);
     }    
     
     private static class Closer extends java.awt.event.WindowAdapter 
@@ -0,0 +1,230 @@
+package flappybird;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Remembers the last few seconds of frames, and writes them to a file when a
+ * frame takes too long, so that a hitch can be looked into after it happened.
+ * <p>
+ * For every frame it keeps when the frame started, how long it was since the
+ * last one, how long drawing took, how many ticks were run since the last
+ * frame, the mode, the number of pipes and fireballs, the garbage collections
+ * and the time spent in them, and the bytes allocated by the thread that draws
+ * the frames. The ticks and the state of the world are read from the snapshot
+ * that was drawn, so the recorder is only used by that thread. These go
+ * into a ring of {@code long} arrays that is allocated up front, so recording a
+ * frame allocates nothing and takes well under a microsecond.
+ * <p>
+ * When the time between two frames goes over the budget, the recorder waits
+ * for a few more frames so that the recovery is included, then copies the ring
+ * and writes it out as CSV on a background thread. Dumps are at least a few
+ * seconds apart, so a run of slow frames gives one file, not hundreds. If
+ * {@code -Dflappybird.jfr=true} is set, each hitch is also committed as a
+ * {@code flappybird.Hitch} event, which shows up in Java Flight Recorder
+ * recordings next to the JVM's own events.
+ *
+ * @author Jiaxuan Wang
+ */
+public class FlightRecorder {
+
+    private static final int FRAMES_AFTER = 30; // frames recorded after a hitch before it is dumped
+    private static final int STARTUP_FRAMES = 2; // the first frames build caches, so they are always slow
+    private static final long MIN_DUMP_INTERVAL_NANOS = 5000000000L;
+
+    // Columns of the ring
+    private static final int START = 0;
+    private static final int INTERVAL = 1;
+    private static final int RENDER = 2;
+    private static final int TICKS = 3;
+    private static final int MODE = 4;
+    private static final int PIPES = 5;
+    private static final int FIREBALLS = 6;
+    private static final int GC_COUNT = 7;
+    private static final int GC_MILLIS = 8;
+    private static final int ALLOCATED = 9;
+    private static final int COLUMN_COUNT = 10;
+
+    private final long[][] columns;
+    private final int mask;
+    private final long budgetNanos;
+    private final File dumpDir;
+    private final GarbageCollectorMXBean[] collectors;
+    private final com.sun.management.ThreadMXBean threads;
+    private final ExecutorService writer;
+    private final boolean jfrEvents;
+
+    private long frames;
+    private int lastTick;
+    private long lastStart;
+    private long lastGcCount;
+    private long lastGcMillis;
+    private long lastAllocated;
+    private long hitchFrame = -1;
+    private long lastDump;
+
+    /**
+     * Constructs a {@code FlightRecorder}.
+     *
+     * @param capacity     the number of frames to remember, rounded up to a power
+     *                     of two
+     * @param budgetMillis the longest a frame can take before it counts as a
+     *                     hitch
+     * @param dumpDir      the directory to write the dumps to
+     */
+    public FlightRecorder(int capacity, double budgetMillis, File dumpDir) {
+        int length = Integer.highestOneBit(Math.max(capacity, FRAMES_AFTER * 2) * 2 - 1);
+        this.columns = new long[COLUMN_COUNT][length];
+        this.mask = length - 1;
+        this.budgetNanos = (long) (budgetMillis * 1e6);
+        this.dumpDir = dumpDir;
+
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = beans.toArray(new GarbageCollectorMXBean[beans.size()]);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+        } else {
+            threads = null;
+        }
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "FlightRecorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        jfrEvents = Boolean.getBoolean("flappybird.jfr") && HitchEvents.isAvailable();
+        lastDump = System.nanoTime() - MIN_DUMP_INTERVAL_NANOS;
+    }
+
+    /**
+     * Records a frame that has just been drawn, and dumps the frames around a
+     * hitch once enough frames after it have been recorded.
+     *
+     * @param start    the {@code System.nanoTime()} when the frame started
+     * @param snapshot the snapshot of the world that was drawn
+     */
+    public void frameDrawn(long start, WorldSnapshot snapshot) {
+        long now = System.nanoTime();
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcMillis += Math.max(collector.getCollectionTime(), 0);
+        }
+        long allocated = (threads == null) ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long interval = (lastStart == 0) ? 0 : start - lastStart;
+
+        int slot = (int) (frames & mask);
+        columns[START][slot] = start;
+        columns[INTERVAL][slot] = interval;
+        columns[RENDER][slot] = now - start;
+        columns[TICKS][slot] = snapshot.getTick() - lastTick;
+        columns[MODE][slot] = snapshot.getMode();
+        columns[PIPES][slot] = snapshot.getPipeCount();
+        columns[FIREBALLS][slot] = snapshot.getFireballCount();
+        columns[GC_COUNT][slot] = (frames == 0) ? 0 : gcCount - lastGcCount;
+        columns[GC_MILLIS][slot] = (frames == 0) ? 0 : gcMillis - lastGcMillis;
+        columns[ALLOCATED][slot] = (frames == 0) ? 0 : allocated - lastAllocated;
+
+        lastTick = snapshot.getTick();
+        lastStart = start;
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+        lastAllocated = allocated;
+
+        if (budgetNanos > 0 && frames >= STARTUP_FRAMES && (interval > budgetNanos || now - start > budgetNanos)) {
+            if (jfrEvents) {
+                HitchEvents.commit(interval, now - start, (int) columns[TICKS][slot], snapshot.getMode(),
+                        columns[GC_COUNT][slot], columns[GC_MILLIS][slot]);
+            }
+            if (hitchFrame < 0 && now - lastDump >= MIN_DUMP_INTERVAL_NANOS) {
+                hitchFrame = frames;
+            }
+        }
+        frames++;
+
+        if (hitchFrame >= 0 && frames - hitchFrame > FRAMES_AFTER) {
+            dump(now);
+        }
+    }
+
+    /**
+     * Copies the ring and writes it to a new file in the background. This is the
+     * only place the recorder allocates, at most once every few seconds.
+     */
+    private void dump(long now) {
+        final long hitch = hitchFrame;
+        final long first = Math.max(0, frames - columns[0].length);
+        final int count = (int) (frames - first);
+        final long[][] copy = new long[COLUMN_COUNT][count];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            for (int i = 0; i < count; i++) {
+                copy[c][i] = columns[c][(int) ((first + i) & mask)];
+            }
+        }
+        hitchFrame = -1;
+        lastDump = now;
+
+        final File file = new File(dumpDir,
+                new SimpleDateFormat("'hitch-'yyyyMMdd-HHmmss-SSS'.csv'").format(new Date()));
+        writer.execute(() -> {
+            try {
+                dumpDir.mkdirs();
+                write(file, copy, first, hitch);
+                System.out.println("Frame hitch recorded in " + file);
+            } catch (IOException e) {
+                System.err.println("Could not write the frame hitch to " + file);
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void write(File file, long[][] copy, long first, long hitch) throws IOException {
+        int hitchIndex = (int) (hitch - first);
+        long hitchStart = copy[START][hitchIndex];
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            out.printf(Locale.ROOT, "# hitch at frame %d: %.3f ms since the last frame, %.3f ms to draw,"
+                    + " budget %.3f ms%n", hitch, copy[INTERVAL][hitchIndex] / 1e6, copy[RENDER][hitchIndex] / 1e6,
+                    budgetNanos / 1e6);
+            out.println("frame,time_ms,interval_ms,render_ms,ticks,mode,pipes,fireballs,gc_count,gc_ms,alloc_bytes");
+            for (int i = 0; i < copy[0].length; i++) {
+                out.printf(Locale.ROOT, "%d,%.3f,%.3f,%.3f,%d,%s,%d,%d,%d,%d,%d%n", first + i,
+                        (copy[START][i] - hitchStart) / 1e6, copy[INTERVAL][i] / 1e6, copy[RENDER][i] / 1e6,
+                        copy[TICKS][i], modeName((int) copy[MODE][i]), copy[PIPES][i], copy[FIREBALLS][i],
+                        copy[GC_COUNT][i], copy[GC_MILLIS][i], copy[ALLOCATED][i]);
+            }
+        }
+    }
+
+    private static String modeName(int mode) {
+        switch (mode) {
+            case World.READY:
+                return "READY";
+            case World.PLAYING:
+                return "PLAYING";
+            case World.CRASHED:
+                return "CRASHED";
+            case World.MARIO:
+                return "MARIO";
+            default:
+                return Integer.toString(mode);
+        }
+    }
+
+}
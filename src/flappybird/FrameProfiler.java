@@ -0,0 +1,436 @@
+package flappybird;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Times each part of a frame and keeps the times in histograms, to show where
+ * the time goes.
+ * <p>
+ * The game calls {@link #lap(int, long)} at the end of each phase, such as
+ * drawing the backdrop or stepping the world, with the time the phase started.
+ * Times go into histograms with buckets about 3% wide, which are allocated up
+ * front, so timing a frame allocates nothing and costs a few calls to
+ * {@code System.nanoTime()}.
+ * <p>
+ * Once a second the histograms of the last second are summed up for the
+ * overlay and added to the running totals. The overlay, which shows the frame
+ * rate and the frame times, is drawn into an image only when those numbers
+ * change, and the image is drawn on every frame, so showing it doesn't slow
+ * down what it measures. The totals can also be appended to a CSV file every
+ * few seconds by a background thread.
+ * <p>
+ * The profiler also keeps the latency of the player's input, recorded once for
+ * each key press or click rather than each frame: how long it waited for the
+ * tick that used it, and how long until the frame showing that tick was
+ * drawn. These are shown and written out next to the phases.
+ * <p>
+ * The ticks may run on a thread of their own. The timings of the ticks, which
+ * are the update, the audio and the wait for a tick, are recorded and summed
+ * up under a lock of their own, so they can come from that thread while the
+ * rest come from the thread that draws.
+ *
+ * @author Jiaxuan Wang
+ */
+public class FrameProfiler {
+
+    // Phases
+    public static final int UPDATE = 0;
+    public static final int AUDIO = 1;
+    public static final int BACKDROP = 2;
+    public static final int PIPES = 3;
+    public static final int GROUND = 4;
+    public static final int BIRD = 5;
+    public static final int HUD = 6;
+    public static final int FRAME = 7;
+    public static final int PHASE_COUNT = 8;
+
+    // Input latencies
+    public static final int INPUT_TO_TICK = 8;
+    public static final int INPUT_TO_FRAME = 9;
+    public static final int TIMING_COUNT = 10;
+
+    private static final String[] TIMING_NAMES = { "update", "audio", "backdrop", "pipes", "ground", "bird", "hud",
+            "frame", "in-tick", "in-frame" };
+
+    private static final long WINDOW_NANOS = 1000000000L;
+    private static final int LINE_HEIGHT = 14;
+    private static final int OVERLAY_WIDTH = 330;
+    private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
+
+    private final Histogram[] window = new Histogram[TIMING_COUNT];
+    private final Object tickLock = new Object(); // guards the window of the tick timings
+    private long windowStart;
+    private int windowFrames;
+
+    private final Object lock = new Object();
+    private final Histogram[] totals = new Histogram[TIMING_COUNT];
+    private final Histogram[] dumped = new Histogram[TIMING_COUNT];
+    private Thread dumper;
+
+    private boolean overlayVisible;
+    private boolean overlayDirty = true;
+    private final BufferedImage overlay;
+    private final char[] line = new char[64];
+    private double fps;
+    private final long[] p50 = new long[TIMING_COUNT];
+    private final long[] p99 = new long[TIMING_COUNT];
+    private final long[] max = new long[TIMING_COUNT];
+
+    /**
+     * Constructs a {@code FrameProfiler} with empty histograms and the overlay
+     * hidden.
+     */
+    public FrameProfiler() {
+        for (int i = 0; i < TIMING_COUNT; i++) {
+            window[i] = new Histogram();
+            totals[i] = new Histogram();
+            dumped[i] = new Histogram();
+        }
+        overlay = new BufferedImage(OVERLAY_WIDTH, (TIMING_COUNT + 1) * LINE_HEIGHT + 6, BufferedImage.TYPE_INT_ARGB);
+        windowStart = System.nanoTime();
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public boolean isOverlayVisible() { return overlayVisible; }
+    public double getFps() { return fps; }
+
+    // Modifiers
+    // -------------------------------------------------------
+    public void setOverlayVisible(boolean visible) { overlayVisible = visible; }
+
+    /**
+     * Records the time of a phase that has just ended.
+     *
+     * @param phase the phase, such as {@link #BACKDROP}
+     * @param since the {@code System.nanoTime()} when the phase started
+     * @return the {@code System.nanoTime()} now, when the next phase starts
+     */
+    public long lap(int phase, long since) {
+        long now = System.nanoTime();
+        record(phase, now - since);
+        return now;
+    }
+
+    /**
+     * Records the latency of one input.
+     *
+     * @param timing the latency, such as {@link #INPUT_TO_TICK}
+     * @param nanos  the latency in nanoseconds
+     */
+    public void record(int timing, long nanos) {
+        if (isTickTiming(timing)) {
+            synchronized (tickLock) {
+                window[timing].record(nanos);
+            }
+        } else {
+            window[timing].record(nanos);
+        }
+    }
+
+    private static boolean isTickTiming(int timing) {
+        return timing == UPDATE || timing == AUDIO || timing == INPUT_TO_TICK;
+    }
+
+    /**
+     * Records the time of a whole frame that has just been drawn, and sums up the
+     * last second if it is over.
+     *
+     * @param since the {@code System.nanoTime()} when the frame started
+     */
+    public void frameDrawn(long since) {
+        long now = lap(FRAME, since);
+        windowFrames++;
+        if (now - windowStart >= WINDOW_NANOS) {
+            endWindow(now);
+        }
+    }
+
+    private void endWindow(long now) {
+        fps = windowFrames * 1e9 / (now - windowStart);
+        for (int i = 0; i < TIMING_COUNT; i++) {
+            if (isTickTiming(i)) {
+                synchronized (tickLock) {
+                    endWindow(i);
+                }
+            } else {
+                endWindow(i);
+            }
+        }
+        windowStart = now;
+        windowFrames = 0;
+        overlayDirty = true;
+    }
+
+    private void endWindow(int timing) {
+        p50[timing] = window[timing].percentile(0.50);
+        p99[timing] = window[timing].percentile(0.99);
+        max[timing] = window[timing].getMax();
+        synchronized (lock) {
+            totals[timing].add(window[timing]);
+        }
+        window[timing].clear();
+    }
+
+    // Overlay
+    // -------------------------------------------------------
+
+    /**
+     * Draws the overlay in the top left corner, if it is visible.
+     *
+     * @param g  the {@code Graphics} object to be drawn on
+     * @param io the {@code ImageObserver} to be notified
+     */
+    public void drawOverlay(Graphics g, ImageObserver io) {
+        if (!overlayVisible) {
+            return;
+        }
+        if (overlayDirty) {
+            renderOverlay();
+            overlayDirty = false;
+        }
+        g.drawImage(overlay, 8, 8, io);
+    }
+
+    private void renderOverlay() {
+        Graphics2D g = overlay.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(OVERLAY_BACKGROUND);
+        g.fillRect(0, 0, overlay.getWidth(), overlay.getHeight());
+        g.setColor(Color.WHITE);
+        g.setFont(OVERLAY_FONT);
+
+        int y = LINE_HEIGHT;
+        int length = appendDecimal(line, append(line, 0, "fps "), Math.round(fps * 1000), 1);
+        g.drawChars(line, 0, length, 6, y);
+        for (int i = PHASE_COUNT - 1; i >= 0; i--) {
+            y += LINE_HEIGHT;
+            drawTiming(g, i, y);
+        }
+        for (int i = PHASE_COUNT; i < TIMING_COUNT; i++) {
+            y += LINE_HEIGHT;
+            drawTiming(g, i, y);
+        }
+        g.dispose();
+    }
+
+    private void drawTiming(Graphics g, int timing, int y) {
+        int length = pad(line, append(line, 0, TIMING_NAMES[timing]), 9);
+        length = appendMillis(line, append(line, length, "p50 "), p50[timing]);
+        length = appendMillis(line, append(line, length, "  p99 "), p99[timing]);
+        length = appendMillis(line, append(line, length, "  max "), max[timing]);
+        g.drawChars(line, 0, length, 6, y);
+    }
+
+    private static int append(char[] chars, int at, String text) {
+        text.getChars(0, text.length(), chars, at);
+        return at + text.length();
+    }
+
+    private static int pad(char[] chars, int at, int to) {
+        while (at < to) {
+            chars[at++] = ' ';
+        }
+        return at;
+    }
+
+    private static int appendMillis(char[] chars, int at, long nanos) {
+        return appendDecimal(chars, at, (nanos + 500) / 1000, 3);
+    }
+
+    /**
+     * Writes a number given in thousandths with the specified number of decimal
+     * places, truncating the rest, without making a {@code String}.
+     */
+    private static int appendDecimal(char[] chars, int at, long thousandths, int places) {
+        long whole = thousandths / 1000;
+        int start = at;
+        do {
+            chars[at++] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+        for (int i = start, j = at - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
+        chars[at++] = '.';
+        long fraction = thousandths % 1000;
+        for (int divisor = 100; places > 0; places--, divisor /= 10) {
+            chars[at++] = (char) ('0' + fraction / divisor % 10);
+        }
+        return at;
+    }
+
+    // Dumping to a file
+    // -------------------------------------------------------
+
+    /**
+     * Starts appending the frame times to a CSV file every few seconds, on a
+     * background thread. Each dump has a row for every phase and input latency,
+     * covering the frames since the last dump.
+     *
+     * @param file            the CSV file to append to
+     * @param intervalSeconds how often to append, in seconds
+     */
+    public void startDumping(final File file, final int intervalSeconds) {
+        if (dumper != null) {
+            return;
+        }
+        dumper = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalSeconds * 1000L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (lock) {
+                    for (int i = 0; i < TIMING_COUNT; i++) {
+                        dumped[i].copyFrom(totals[i]);
+                        totals[i].clear();
+                    }
+                }
+                try {
+                    dump(file);
+                } catch (IOException e) {
+                    System.err.println("Could not write the frame times to " + file);
+                    e.printStackTrace();
+                    return;
+                }
+            }
+        }, "FrameProfiler");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+
+    private void dump(File file) throws IOException {
+        boolean header = !file.exists() || file.length() == 0;
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true),
+                StandardCharsets.UTF_8))) {
+            if (header) {
+                out.println("time,phase,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms");
+            }
+            long time = System.currentTimeMillis() / 1000;
+            for (int i = 0; i < TIMING_COUNT; i++) {
+                Histogram h = dumped[i];
+                if (h.getCount() == 0) {
+                    continue;
+                }
+                out.printf(Locale.ROOT, "%d,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n", time, TIMING_NAMES[i], h.getCount(),
+                        h.getMean() / 1e6, h.percentile(0.50) / 1e6, h.percentile(0.90) / 1e6,
+                        h.percentile(0.99) / 1e6, h.getMax() / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Counts durations in buckets whose width grows with the duration, so that
+     * every bucket is about 3% of the durations in it. Durations are counted in
+     * units of 1024 ns, up to about 18 minutes.
+     */
+    private static class Histogram {
+        private static final int UNIT_SHIFT = 10;
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS) * SUB_COUNT + 2 * SUB_COUNT;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long max;
+
+        long getCount() { return count; }
+        long getMax() { return max; }
+        double getMean() { return (count == 0) ? 0 : (double) sum / count; }
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            counts[bucket(nanos >>> UNIT_SHIFT)]++;
+            count++;
+            sum += nanos;
+            if (nanos > max) {
+                max = nanos;
+            }
+        }
+
+        /**
+         * Returns a duration that the specified fraction of the recorded durations
+         * are no longer than, to within the width of a bucket.
+         */
+        long percentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // The top of the bucket, but never more than the longest duration
+                    return Math.min((lowestValue(i + 1) << UNIT_SHIFT) - 1, max);
+                }
+            }
+            return max;
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        void copyFrom(Histogram other) {
+            System.arraycopy(other.counts, 0, counts, 0, BUCKETS);
+            count = other.count;
+            sum = other.sum;
+            max = other.max;
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        private static int bucket(long units) {
+            if (units < 2 * SUB_COUNT) {
+                return (int) units;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(units), MAX_EXPONENT);
+            int mantissa = (int) Math.min(units >>> (exponent - SUB_BITS), 2 * SUB_COUNT - 1);
+            return (exponent - SUB_BITS) * SUB_COUNT + mantissa;
+        }
+
+        private static long lowestValue(int bucket) {
+            if (bucket < 2 * SUB_COUNT) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+            long mantissa = bucket % SUB_COUNT + SUB_COUNT;
+            return mantissa << (exponent - SUB_BITS);
+        }
+    }
+
+}
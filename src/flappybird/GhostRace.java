@@ -0,0 +1,398 @@
+package flappybird;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The birds of earlier games, drawn see-through next to the bird being played
+ * so that the player can race them.
+ * <p>
+ * A ghost is just the height of its bird on every tick of its game, from the
+ * first flap until it crashed. The heights of every ghost are kept one after
+ * another in a single {@code short} array, with the start, length and color
+ * of each ghost in parallel arrays, so a thousand ghosts of a minute each take
+ * a few megabytes and no objects. Ghosts are lined up with the game being
+ * played by the number of ticks since the first flap.
+ * <p>
+ * Drawing is done in one pass: ghosts that have already crashed are skipped,
+ * the rest are sorted by which of the twelve see-through frames they use, and
+ * each frame is drawn for all of its ghosts in a row. Ghosts that would be
+ * drawn with the same frame at the same height as one already drawn are
+ * skipped, since they would only darken it. The see-through frames are made
+ * once from the bird's own sprites, with the transparency already in the
+ * pixels, so drawing a ghost is an ordinary copy like drawing any sprite.
+ * When the {@code Graphics} is scaled, the frames are scaled once as well, and
+ * every ghost is drawn at its screen pixel without the scale.
+ * <p>
+ * Ghosts are only ever added, by one thread at a time, and may be drawn by
+ * another thread meanwhile. The arrays and the count of ghosts in them are
+ * held together in one immutable {@code Ghosts}, published through a single
+ * volatile field. Adding a ghost writes it in full past the end of the ones
+ * already counted, into new arrays if the old ones are too small, and then
+ * publishes a new {@code Ghosts} with the count raised. A reader takes the
+ * field once, and only looks at the ghosts it counts, which are never written
+ * again, so it always sees whole ghosts and arrays that match the count.
+ *
+ * @author Jiaxuan Wang
+ */
+public class GhostRace {
+
+    /**
+     * How opaque a ghost is, from 0 to 1.
+     */
+    public static final float GHOST_ALPHA = 0.35f;
+
+    private static final int FRAME_TICKS = 7; // the bird flaps its wings every 7 ticks
+    private static final int SPRITE_COUNT = Bird.COLOR_COUNT * Bird.FRAME_COUNT;
+    private static final int MAX_Y = World.GROUND_LEVEL;
+
+    private volatile Ghosts ghosts = new Ghosts(new short[4096], new int[16], new int[16], new byte[16], 0, 0);
+
+    // Reused by every draw
+    private final int[] bucketStarts = new int[SPRITE_COUNT + 1];
+    private int[] drawYs = new int[16];
+    private final long[] drawn = new long[(SPRITE_COUNT * MAX_Y + 63) / 64];
+    private BufferedImage[] sprites;
+    private Sprite[] scalableSprites;
+    private final Image[] scaledSprites = new Image[SPRITE_COUNT];
+
+    // Accessors
+    // -------------------------------------------------------
+    public int size() { return ghosts.size; }
+    public int getLength(int ghost) { return ghosts.lengths[ghost]; }
+    public int getColor(int ghost) { return ghosts.colors[ghost]; }
+
+    /**
+     * Returns the height of a ghost on one tick of its game.
+     *
+     * @param ghost the ghost
+     * @param tick  the tick, where 0 is the tick of the first flap
+     * @return the <i>y</i> coordinate of the ghost's bird
+     */
+    public int getY(int ghost, int tick) {
+        Ghosts ghosts = this.ghosts;
+        if (tick < 0 || tick >= ghosts.lengths[ghost]) {
+            throw new IndexOutOfBoundsException("Tick: " + tick + ", Length: " + ghosts.lengths[ghost]);
+        }
+        return ghosts.heights[ghosts.starts[ghost] + tick];
+    }
+
+    /**
+     * Adds a ghost.
+     *
+     * @param track  the height of the bird on each tick from the first flap
+     * @param length the number of ticks in the track
+     * @param color  the color of the bird, such as {@code Bird.YELLOW}
+     */
+    public void add(short[] track, int length, int color) {
+        if (length <= 0) {
+            return;
+        }
+        Ghosts old = ghosts;
+        int size = old.size;
+        int heightsUsed = old.heightsUsed;
+        short[] heights = old.heights;
+        int[] starts = old.starts;
+        int[] lengths = old.lengths;
+        byte[] colors = old.colors;
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+        }
+        if (heightsUsed + length > heights.length) {
+            heights = Arrays.copyOf(heights, Math.max(heights.length * 2, heightsUsed + length));
+        }
+        System.arraycopy(track, 0, heights, heightsUsed, length);
+        starts[size] = heightsUsed;
+        lengths[size] = length;
+        colors[size] = (byte) color;
+        ghosts = new Ghosts(heights, starts, lengths, colors, size + 1, heightsUsed + length);
+    }
+
+    /**
+     * Adds every ghost of another race to this one.
+     *
+     * @param other the race to take the ghosts from
+     */
+    public void addAll(GhostRace other) {
+        Ghosts others = other.ghosts;
+        for (int i = 0; i < others.size; i++) {
+            add(others.track(i), others.lengths[i], others.colors[i]);
+        }
+    }
+
+    /**
+     * Draws every ghost that is still flying, in between two ticks the same way
+     * as {@code Bird.draw}.
+     *
+     * @param g     the {@code Graphics} object to be drawn on
+     * @param x     the <i>x</i> coordinate of the birds
+     * @param ticks the number of ticks since the first flap of the game being
+     *              played
+     * @param alpha how far between the last two ticks to draw, from 0 to 1
+     * @param io    the {@code ImageObserver} to be notified
+     * @return the number of ghosts drawn
+     */
+    public int draw(Graphics g, int x, int ticks, double alpha, ImageObserver io) {
+        Ghosts ghosts = this.ghosts; // ghosts added while drawing are drawn next time
+        int size = ghosts.size;
+        if (size == 0 || ticks <= 0) {
+            return 0;
+        }
+        short[] heights = ghosts.heights;
+        int[] starts = ghosts.starts;
+        int[] lengths = ghosts.lengths;
+        byte[] colors = ghosts.colors;
+        if (drawYs.length < size) {
+            drawYs = new int[starts.length];
+        }
+        BufferedImage[] sprites = getSprites();
+        int frame = ((ticks - 1) / FRAME_TICKS) % Bird.FRAME_COUNT;
+        int current = ticks - 1;
+        int previous = Math.max(ticks - 2, 0);
+
+        // Count the ghosts still flying for each sprite, then sort them by sprite
+        Arrays.fill(bucketStarts, 0);
+        for (int i = 0; i < size; i++) {
+            if (current < lengths[i]) {
+                bucketStarts[colors[i] * Bird.FRAME_COUNT + frame + 1]++;
+            }
+        }
+        for (int s = 0; s < SPRITE_COUNT; s++) {
+            bucketStarts[s + 1] += bucketStarts[s];
+        }
+        for (int i = 0; i < size; i++) {
+            if (current < lengths[i]) {
+                int y0 = heights[starts[i] + previous];
+                int y1 = heights[starts[i] + current];
+                int slot = bucketStarts[colors[i] * Bird.FRAME_COUNT + frame]++;
+                drawYs[slot] = Math.max(0, Math.min((int) (y0 + (y1 - y0) * alpha), MAX_Y - 1));
+            }
+        }
+
+        // When scaled, draw the scaled frames at screen pixels for the whole race
+        Graphics2D g2 = (Graphics2D) g;
+        AffineTransform transform = g2.getTransform();
+        double scale = Sprite.uniformScale(transform);
+        boolean scaled = scale != 1 && scale != 0;
+        Image[] images = sprites;
+        int drawX = x;
+        if (scaled) {
+            images = getScaledSprites(g2.getDeviceConfiguration(), scale);
+            drawX = Sprite.toDevice(x, scale, transform.getTranslateX());
+            g2.setTransform(Sprite.IDENTITY);
+        }
+
+        // The sorting moved the start of each bucket to its end, which is where
+        // the next bucket starts
+        Arrays.fill(drawn, 0);
+        int count = 0;
+        int start = 0;
+        for (int s = 0; s < SPRITE_COUNT; s++) {
+            int end = bucketStarts[s];
+            if (start < end) {
+                Image image = images[s];
+                for (int slot = start; slot < end; slot++) {
+                    int key = s * MAX_Y + drawYs[slot];
+                    if ((drawn[key >>> 6] & (1L << key)) == 0) {
+                        drawn[key >>> 6] |= 1L << key;
+                        int drawY = scaled ? Sprite.toDevice(drawYs[slot], scale, transform.getTranslateY())
+                                : drawYs[slot];
+                        g.drawImage(image, drawX, drawY, io);
+                        count++;
+                    }
+                }
+            }
+            start = end;
+        }
+        if (scaled) {
+            g2.setTransform(transform);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the see-through frames, one for each frame of each color, making
+     * them the first time.
+     */
+    private BufferedImage[] getSprites() {
+        if (sprites == null) {
+            sprites = new BufferedImage[SPRITE_COUNT];
+            for (int color = 0; color < Bird.COLOR_COUNT; color++) {
+                Sprite[] frames = Bird.frames(color);
+                for (int i = 0; i < Bird.FRAME_COUNT; i++) {
+                    Sprite frame = frames[i];
+                    BufferedImage ghost = new BufferedImage(frame.getWidth(), frame.getHeight(),
+                            BufferedImage.TYPE_INT_ARGB_PRE);
+                    Graphics2D g = ghost.createGraphics();
+                    g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, GHOST_ALPHA));
+                    g.drawImage(frame.getImage(null), 0, 0, null);
+                    g.dispose();
+                    sprites[color * Bird.FRAME_COUNT + i] = ghost;
+                }
+            }
+        }
+        return sprites;
+    }
+
+    /**
+     * Returns the see-through frames scaled to screen pixels, each one scaled
+     * once for a scale and then kept.
+     */
+    private Image[] getScaledSprites(GraphicsConfiguration gc, double scale) {
+        if (scalableSprites == null) {
+            BufferedImage[] sprites = getSprites();
+            scalableSprites = new Sprite[SPRITE_COUNT];
+            for (int s = 0; s < SPRITE_COUNT; s++) {
+                scalableSprites[s] = new Sprite(sprites[s]);
+            }
+        }
+        for (int s = 0; s < SPRITE_COUNT; s++) {
+            scaledSprites[s] = scalableSprites[s].getImage(gc, scale);
+        }
+        return scaledSprites;
+    }
+
+    /**
+     * Records the track of the bird being played, and adds it to a race as a
+     * ghost when the game is over.
+     */
+    public static class Recorder {
+        private short[] track = new short[1024];
+        private int length;
+        private int ticks;
+        private boolean recording;
+
+        /**
+         * Returns the number of ticks since the first flap of the game, which
+         * keeps counting after the bird has crashed until the next game.
+         *
+         * @return the ticks since the first flap, or 0 before it
+         */
+        public int getTicks() { return ticks; }
+
+        /**
+         * Records a tick of a world that has just been stepped.
+         *
+         * @param world the world
+         * @param race  the race to add the ghost to when the game is over, or
+         *              {@code null} to throw it away
+         */
+        public void tick(World world, GhostRace race) {
+            if (world.getMode() == World.READY) {
+                length = 0;
+                ticks = 0;
+                recording = false;
+                return;
+            }
+            ticks++;
+            if (world.getMode() == World.PLAYING || world.getMode() == World.MARIO) {
+                if (length == track.length) {
+                    track = Arrays.copyOf(track, length * 2);
+                }
+                track[length++] = (short) world.getBird().getY();
+                recording = true;
+            }
+            if ((world.getEvents() & World.GAME_OVER) != 0 && recording) {
+                if (race != null) {
+                    race.add(track, length, world.getBird().getColor());
+                }
+                recording = false;
+            }
+        }
+    }
+
+    /**
+     * Plays the replays in a directory headless, and makes a race of the games
+     * in them with the highest scores.
+     *
+     * @param dir       the directory of replays
+     * @param maxGhosts the most ghosts to keep
+     * @return the race, which is empty if there are no replays
+     */
+    public static GhostRace fromReplays(File dir, int maxGhosts) {
+        GhostRace all = new GhostRace();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".fbr"));
+        if (files == null) {
+            return all;
+        }
+        Arrays.sort(files);
+        Recorder recorder = new Recorder();
+        for (File file : files) {
+            try {
+                Replay replay = Replay.read(file);
+                if (replay.getRulesVersion() != World.RULES_VERSION) {
+                    continue;
+                }
+                World world = replay.createWorld();
+                replay.rewind();
+                while (!replay.isFinished()) {
+                    world.step(replay.next());
+                    recorder.tick(world, all);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read the replay " + file);
+                e.printStackTrace();
+            }
+        }
+        Ghosts ghosts = all.ghosts;
+        if (ghosts.size <= maxGhosts) {
+            return all;
+        }
+
+        // Keep the longest games, which are the ones with the highest scores
+        Integer[] byLength = new Integer[ghosts.size];
+        for (int i = 0; i < ghosts.size; i++) {
+            byLength[i] = i;
+        }
+        Arrays.sort(byLength, (a, b) -> Integer.compare(ghosts.lengths[b], ghosts.lengths[a]));
+        GhostRace best = new GhostRace();
+        for (int i = 0; i < maxGhosts; i++) {
+            int ghost = byLength[i];
+            best.add(ghosts.track(ghost), ghosts.lengths[ghost], ghosts.colors[ghost]);
+        }
+        return best;
+    }
+
+    /**
+     * The ghosts of a race at one moment: the arrays they are kept in, and how
+     * many of the ghosts in them are counted. The ghosts counted are never
+     * written again, though ghosts may be added past them in the same arrays.
+     */
+    private static final class Ghosts {
+        final short[] heights;
+        final int[] starts;
+        final int[] lengths;
+        final byte[] colors;
+        final int size;
+        final int heightsUsed;
+
+        Ghosts(short[] heights, int[] starts, int[] lengths, byte[] colors, int size, int heightsUsed) {
+            this.heights = heights;
+            this.starts = starts;
+            this.lengths = lengths;
+            this.colors = colors;
+            this.size = size;
+            this.heightsUsed = heightsUsed;
+        }
+
+        /**
+         * Returns a copy of the heights of one ghost.
+         */
+        short[] track(int ghost) {
+            return Arrays.copyOfRange(heights, starts[ghost], starts[ghost] + lengths[ghost]);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package flappybird;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Commits frame hitches as Java Flight Recorder events.
+ * <p>
+ * The event itself, {@code flappybird.HitchEvent}, is the only class that uses
+ * {@code jdk.jfr}. It is kept in the separate {@code jfr} source root, which
+ * the build compiles only when the JDK has Flight Recorder, so the rest of the
+ * game still builds against Java 8 APIs alone. This class looks the event up
+ * by name, and {@link #isAvailable()} says whether it was found and the JVM
+ * has Flight Recorder, so the game still runs without either.
+ *
+ * @author Jiaxuan Wang
+ */
+final class HitchEvents {
+
+    private static final String EVENT_CLASS = "flappybird.HitchEvent";
+    private static final Method COMMIT = findCommit();
+
+    private HitchEvents() {
+    }
+
+    /**
+     * Returns whether this JVM supports Flight Recorder events, and the event
+     * class was built.
+     *
+     * @return {@code true} if events can be committed; {@code false} otherwise
+     */
+    static boolean isAvailable() {
+        return COMMIT != null;
+    }
+
+    private static Method findCommit() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return Class.forName(EVENT_CLASS).getDeclaredMethod("commit", long.class, long.class, int.class,
+                    int.class, long.class, long.class);
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Commits a hitch event, if Flight Recorder is recording it. This must only
+     * be called once {@link #isAvailable()} has returned {@code true}.
+     *
+     * @param intervalNanos the time since the last frame
+     * @param renderNanos   the time taken to draw the frame
+     * @param ticks         the ticks run before the frame
+     * @param mode          the mode of the world
+     * @param gcCount       the garbage collections since the last frame
+     * @param gcMillis      the time spent collecting since the last frame
+     */
+    static void commit(long intervalNanos, long renderNanos, int ticks, int mode, long gcCount, long gcMillis) {
+        try {
+            COMMIT.invoke(null, intervalNanos, renderNanos, ticks, mode, gcCount, gcMillis);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
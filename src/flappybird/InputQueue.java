@@ -0,0 +1,123 @@
+package flappybird;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The player's key presses and clicks, each with the time it arrived, waiting
+ * for the tick that uses them.
+ * <p>
+ * Inputs are added by the thread that receives the key and mouse events, and
+ * taken by the thread that runs the ticks, which may or may not be the same.
+ * The queue is a ring of {@code int}s and {@code long}s allocated up front,
+ * with a count of the inputs added and a count of the inputs taken. Each side
+ * only writes its own count, and publishes it after it has written or read
+ * the slot, so neither side ever waits for the other or allocates. When the
+ * ring is full, new inputs are dropped and counted.
+ * <p>
+ * Taking is done in two steps: {@link #peek()} looks at the oldest input, and
+ * {@link #remove()} takes it. This lets a tick leave an input for the next
+ * tick, for example a second flap that arrived before the first one was used.
+ *
+ * @author Jiaxuan Wang
+ */
+public class InputQueue {
+
+    private final int[] inputs;
+    private final long[] times;
+    private final int mask;
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong taken = new AtomicLong();
+    private volatile long dropped;
+
+    // The input found by the last peek
+    private int input;
+    private long time;
+
+    /**
+     * Constructs an empty {@code InputQueue}.
+     *
+     * @param capacity the most inputs it can hold, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        inputs = new int[length];
+        times = new long[length];
+        mask = length - 1;
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public long getDropped() { return dropped; }
+
+    /**
+     * Returns the input bits found by the last {@link #peek()}.
+     *
+     * @return the input bits
+     */
+    public int getInput() { return input; }
+
+    /**
+     * Returns when the input found by the last {@link #peek()} arrived.
+     *
+     * @return the {@code System.nanoTime()} the input arrived at
+     */
+    public long getTime() { return time; }
+
+    /**
+     * Adds an input that has just arrived. This must only be called from one
+     * thread at a time.
+     *
+     * @param input the input bits
+     * @return {@code true} if it was added; {@code false} if the queue is full
+     */
+    public boolean add(int input) {
+        return add(input, System.nanoTime());
+    }
+
+    /**
+     * Adds an input. This must only be called from one thread at a time.
+     *
+     * @param input the input bits
+     * @param time  the {@code System.nanoTime()} the input arrived at
+     * @return {@code true} if it was added; {@code false} if the queue is full
+     */
+    public boolean add(int input, long time) {
+        long tail = added.get();
+        if (tail - taken.get() > mask) {
+            dropped++;
+            return false;
+        }
+        int slot = (int) tail & mask;
+        inputs[slot] = input;
+        times[slot] = time;
+        added.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Looks at the oldest input without taking it. Its bits and time are then
+     * returned by {@link #getInput()} and {@link #getTime()}. This must only be
+     * called from the thread that takes the inputs.
+     *
+     * @return {@code true} if there is an input; {@code false} if the queue is
+     *         empty
+     */
+    public boolean peek() {
+        long head = taken.get();
+        if (head == added.get()) {
+            return false;
+        }
+        int slot = (int) head & mask;
+        input = inputs[slot];
+        time = times[slot];
+        return true;
+    }
+
+    /**
+     * Takes the oldest input, which must have been found by {@link #peek()}.
+     */
+    public void remove() {
+        taken.lazySet(taken.get() + 1);
+    }
+
+}
@@ -4,8 +4,6 @@ import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.image.ImageObserver;
 
-import javax.sound.sampled.Clip;
-
 /**
  * Code for the character of Mario, who makes his appearance in this version of
  * Flappy Bird every 50 points scored by the player.
@@ -24,6 +22,7 @@ public class Mario {
 
     // Constants
     // -------------------------------------------------------
+    public static final double GRAVITY = 0.4;
     private final int width = 41;
     private final int height = 74;
 
@@ -31,36 +30,49 @@ public class Mario {
     // -------------------------------------------------------
     private double x;
     private double y;
+    private double lastX;
+    private double lastY;
     private double xVel;
     private double yVel;
     private int mode;
+    private int sounds;
     private Pipe pipe;
 
     /**
-     * Constructs a {@code Mario} object belonging to the specified {@code Pipe}.
-     * 
-     * @param pipe the {@code Pipe} that houses this {@code Mario} object
+     * Constructs a {@code Mario} object, who waits off the screen until he is
+     * started in a pipe.
      */
-    public Mario(Pipe pipe) {
-        this.pipe = pipe;
-        x = pipe.getX() + pipe.getWidth() / 2 - width / 2;
+    public Mario() {
+        x = World.WIDTH + 200;
+        lastX = x;
     }
 
     // Accessors
     // -------------------------------------------------------
     public int getX() { return (int) x; }
     public int getY() { return (int) y; }
+    public double getExactX() { return x; }
+    public double getExactY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public double getXVel() { return xVel; }
+    public double getYVel() { return yVel; }
     public Rectangle getBounds() { return new Rectangle((int) x, (int) y, width, height); }
 
     /**
-     * Makes {@code Mario} come out of the bottom pipe.
+     * Makes {@code Mario} come out of the bottom of the specified pipe.
+     * 
+     * @param pipe the {@code Pipe} that houses this {@code Mario} object
      */
-    public void start() {
+    public void start(Pipe pipe) {
+        this.pipe = pipe;
         mode = ENTERING;
         x = pipe.getX() + pipe.getWidth() / 2 - width / 2;
-        y = pipe.getLowerBound().getMinY();
+        y = pipe.getLowerY();
+        lastX = x;
+        lastY = y;
         yVel = -1;
-        playSound(Resources.MARIO_PIPE_SOUND);
+        sounds |= World.SOUND_MARIO_PIPE;
     }
 
     /**
@@ -76,7 +88,7 @@ public class Mario {
      */
     public void animateThrow() {
         mode = THROWING;
-        playSound(Resources.MARIO_FIREBALL_SOUND);
+        sounds |= World.SOUND_MARIO_FIREBALL;
     }
 
     /**
@@ -86,7 +98,7 @@ public class Mario {
     public void jump() {
         mode = JUMPING;
         yVel = -7;
-        playSound(Resources.MARIO_JUMP_SOUND);
+        sounds |= World.SOUND_MARIO_JUMP;
     }
 
     /**
@@ -97,7 +109,7 @@ public class Mario {
         mode = FINAL_JUMPING;
         xVel = -5;
         yVel = -7;
-        playSound(Resources.MARIO_JUMP_SOUND);
+        sounds |= World.SOUND_MARIO_JUMP;
     }
 
     /**
@@ -107,7 +119,7 @@ public class Mario {
      *         {@code false} otherwise
      */
     public boolean isFinished() {
-        return y > FlappyBirdGame.GROUND_LEVEL;
+        return y > World.GROUND_LEVEL;
     }
 
     /**
@@ -119,25 +131,51 @@ public class Mario {
 
         switch (mode) {
             case ENTERING:
-                if (y <= pipe.getLowerBound().getMinY() - height) {
+                if (y <= pipe.getLowerY() - height) {
                     jump();
                 }
                 break;
             case JUMPING:
-                if (y >= pipe.getLowerBound().getMinY() - height) {
+                if (y >= pipe.getLowerY() - height) {
                     yVel = 0;
                     mode = STANDING;
                 } else {
-                    yVel += 0.4;
+                    yVel += GRAVITY;
                 }
                 break;
             case FINAL_JUMPING:
-                yVel += 0.4;
+                yVel += GRAVITY;
                 break;
         }
 
     }
 
+    /**
+     * Remembers the current position as the one this {@code Mario} had at the start
+     * of the tick, so that it can be drawn in between ticks.
+     */
+    public void savePosition() {
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * Makes this {@code Mario} a copy of another one, so that he can be drawn
+     * while the other one moves on. The copy is only for drawing, so it is not
+     * in a pipe and has no sounds to play.
+     * 
+     * @param other the {@code Mario} to copy
+     */
+    public void copyFrom(Mario other) {
+        x = other.x;
+        y = other.y;
+        lastX = other.lastX;
+        lastY = other.lastY;
+        xVel = other.xVel;
+        yVel = other.yVel;
+        mode = other.mode;
+    }
+
     /**
      * Draws this {@code Mario} object to the screen.
      * 
@@ -145,27 +183,43 @@ public class Mario {
      * @param io the {@code ImageObserver} to be notified
      */
     public void draw(Graphics g, ImageObserver io) {
+        draw(g, io, 1);
+    }
+
+    /**
+     * Draws this {@code Mario} object to the screen, in between his position at
+     * the start of the tick and his current position.
+     * 
+     * @param g     the {@code Graphics} object to be drawn on
+     * @param io    the {@code ImageObserver} to be notified
+     * @param alpha how far between the two positions to draw, from 0 to 1
+     */
+    public void draw(Graphics g, ImageObserver io, double alpha) {
+        int drawX = (int) (lastX + (x - lastX) * alpha);
+        int drawY = (int) (lastY + (y - lastY) * alpha);
         switch (mode) {
             case THROWING:
-                g.drawImage(Resources.MARIO_THROWING, (int) x, (int) y, width, height, io);
+                Resources.getSprite("mario_throwing").draw(g, drawX, drawY, io);
                 break;
             case JUMPING:
             case FINAL_JUMPING:
-                g.drawImage(Resources.MARIO_JUMPING, (int) x, (int) y, width, height, io);
+                Resources.getSprite("mario_jumping").draw(g, drawX, drawY, io);
                 break;
             default:
-                g.drawImage(Resources.MARIO_STANDING, (int) x, (int) y, width, height, io);
+                Resources.getSprite("mario_standing").draw(g, drawX, drawY, io);
         }
     }
 
     /**
-     * Plays the audio from a {@code Clip} object.
+     * Returns the sounds this {@code Mario} has asked to play since the last call,
+     * as a combination of the {@code World.SOUND_*} bits, and clears them.
      * 
-     * @param clip the {@code Clip} to play
+     * @return the pending sound bits
      */
-    public void playSound(Clip clip) {
-        clip.setFramePosition(0);
-        clip.start();
+    public int takeSounds() {
+        int pending = sounds;
+        sounds = 0;
+        return pending;
     }
 
 }
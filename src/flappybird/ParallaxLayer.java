@@ -0,0 +1,228 @@
+package flappybird;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+
+/**
+ * A background that repeats horizontally and scrolls at a fixed fraction of
+ * the speed of the pipes, such as the backdrop or the ground.
+ * <p>
+ * The first {@code period} pixels of the source image are tiled once into a
+ * strip one period wider than the view. Scrolling is then a matter of which
+ * part of the strip to copy, so every frame is a single unscaled blit of
+ * exactly the visible part, with no wrap-around seams, however far the game
+ * has scrolled. Strips are made compatible with the screen, and are opaque
+ * when the source has no transparent pixels, so Java2D can copy them without
+ * blending.
+ * <p>
+ * A layer can also be drawn at sub-pixel offsets. Copies of the strip shifted
+ * by fractions of a pixel are rendered up front, and the one nearest the
+ * fractional part of the offset is used, so a slow layer glides instead of
+ * sticking and then jumping a whole pixel.
+ * <p>
+ * When the {@code Graphics} is scaled, the strip is scaled once to screen
+ * pixels, with nearest neighbour interpolation like a {@code Sprite}, and
+ * drawn without the scale. A screen pixel is then already a fraction of a
+ * pixel of the layer, so the shifted copies aren't needed.
+ *
+ * @author Jiaxuan Wang
+ */
+public class ParallaxLayer {
+
+    private final Sprite source;
+    private final int period;
+    private final double ratio;
+    private final int y;
+    private final int viewWidth;
+    private final int phases;
+
+    private GraphicsConfiguration config;
+    private Image[] strips;
+    private GraphicsConfiguration scaledConfig;
+    private double scale;
+    private Image scaledStrip;
+
+    /**
+     * Constructs a {@code ParallaxLayer}.
+     *
+     * @param source    the image to tile, which repeats every {@code period}
+     *                  pixels
+     * @param period    the width, in pixels, of one repeat of the image
+     * @param ratio     how far the layer scrolls for every pixel the pipes
+     *                  scroll
+     * @param y         the <i>y</i> coordinate of the top of the layer
+     * @param viewWidth the width of the area the layer covers
+     * @param phases    the number of sub-pixel offsets to render, or 1 to draw
+     *                  at whole pixels only
+     */
+    public ParallaxLayer(Sprite source, int period, double ratio, int y, int viewWidth, int phases) {
+        if (period <= 0 || phases <= 0) {
+            throw new IllegalArgumentException("The period and the number of phases must be positive");
+        }
+        this.source = source;
+        this.period = period;
+        this.ratio = ratio;
+        this.y = y;
+        this.viewWidth = viewWidth;
+        this.phases = phases;
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public int getPeriod() { return period; }
+    public double getRatio() { return ratio; }
+
+    /**
+     * Returns how far into the strip the view starts, for a scroll distance.
+     *
+     * @param scroll how far the pipes have scrolled, in pixels
+     * @return the offset, from 0 up to but not including the period
+     */
+    public double getOffset(double scroll) {
+        double offset = (scroll * ratio) % period;
+        return (offset < 0) ? offset + period : offset;
+    }
+
+    /**
+     * Draws this layer across the view, scrolled by the specified distance.
+     *
+     * @param g      the {@code Graphics} object to be drawn on
+     * @param scroll how far the pipes have scrolled, in pixels
+     * @param io     the {@code ImageObserver} to be notified
+     */
+    public void draw(Graphics g, double scroll, ImageObserver io) {
+        Graphics2D g2 = (Graphics2D) g;
+        GraphicsConfiguration gc = g2.getDeviceConfiguration();
+        AffineTransform transform = g2.getTransform();
+        double scale = Sprite.uniformScale(transform);
+        if (scale != 1 && scale != 0) {
+            drawScaled(g2, gc, transform, scale, scroll, io);
+            return;
+        }
+
+        Image[] strips = getStrips(gc);
+        double offset = getOffset(scroll);
+        int whole = (int) offset;
+        int phase = (int) ((offset - whole) * phases);
+        Image strip = strips[phase];
+        int height = strip.getHeight(null);
+        g.drawImage(strip, 0, y, viewWidth, y + height, whole, 0, whole + viewWidth, height, io);
+    }
+
+    private void drawScaled(Graphics2D g, GraphicsConfiguration gc, AffineTransform transform, double scale,
+            double scroll, ImageObserver io) {
+        if (scaledStrip == null || gc != scaledConfig || scale != this.scale) {
+            scaledStrip = createScaledStrip(gc, scale);
+            scaledConfig = gc;
+            this.scale = scale;
+        }
+        int x = Sprite.toDevice(0, scale, transform.getTranslateX());
+        int top = Sprite.toDevice(y, scale, transform.getTranslateY());
+        int width = Sprite.scaledSize(viewWidth, scale);
+        int height = scaledStrip.getHeight(null);
+        int offset = (int) (getOffset(scroll) * scale);
+        g.setTransform(Sprite.IDENTITY);
+        g.drawImage(scaledStrip, x, top, x + width, top + height, offset, 0, offset + width, height, io);
+        g.setTransform(transform);
+    }
+
+    private Image[] getStrips(GraphicsConfiguration gc) {
+        if (strips == null || gc != config) {
+            strips = createStrips(gc);
+            config = gc;
+        }
+        return strips;
+    }
+
+    private Image[] createStrips(GraphicsConfiguration gc) {
+        BufferedImage tiled = createTiled(gc);
+        int height = tiled.getHeight();
+        int transparency = isOpaque(tiled) ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+        int stripWidth = viewWidth + period;
+
+        Image[] result = new Image[phases];
+        for (int phase = 0; phase < phases; phase++) {
+            BufferedImage strip = createStrip(gc, stripWidth, height, transparency);
+            Graphics2D g = strip.createGraphics();
+            if (phase > 0) {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.translate(-(double) phase / phases, 0);
+            }
+            g.drawImage(tiled, 0, 0, null);
+            g.dispose();
+            result[phase] = strip;
+        }
+        return result;
+    }
+
+    private Image createScaledStrip(GraphicsConfiguration gc, double scale) {
+        BufferedImage tiled = createTiled(gc);
+        int transparency = isOpaque(tiled) ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+        int width = Sprite.scaledSize(tiled.getWidth(), scale);
+        int height = Sprite.scaledSize(tiled.getHeight(), scale);
+        BufferedImage strip = createStrip(gc, width, height, transparency);
+        Graphics2D g = strip.createGraphics();
+        g.drawImage(tiled, 0, 0, width, height, null);
+        g.dispose();
+        return strip;
+    }
+
+    /**
+     * Tiles the first period of the source image across a strip two periods
+     * wider than the view: one more than the strip needs, so the shifted copies
+     * can wrap too.
+     */
+    private BufferedImage createTiled(GraphicsConfiguration gc) {
+        BufferedImage tile = toBufferedImage(source.getImage(gc));
+        int height = tile.getHeight();
+        BufferedImage tiled = new BufferedImage(viewWidth + 2 * period, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = tiled.createGraphics();
+        for (int x = 0; x < tiled.getWidth(); x += period) {
+            g.drawImage(tile, x, 0, x + period, height, 0, 0, period, height, null);
+        }
+        g.dispose();
+        return tiled;
+    }
+
+    private static BufferedImage createStrip(GraphicsConfiguration gc, int width, int height, int transparency) {
+        if (gc != null) {
+            return gc.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height,
+                transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static BufferedImage toBufferedImage(Image image) {
+        if (image instanceof BufferedImage) {
+            return (BufferedImage) image;
+        }
+        BufferedImage copy = new BufferedImage(image.getWidth(null), image.getHeight(null),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        if (image.getTransparency() == Transparency.OPAQUE) {
+            return true;
+        }
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) >>> 24) != 0xFF) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
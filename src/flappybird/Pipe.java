@@ -11,45 +11,49 @@ import java.awt.image.ImageObserver;
  */
 public class Pipe {
 
-    private final int width = 94;
+    public static final int WIDTH = 94;
+
+    /**
+     * The height of the collision box of each half of the pipe.
+     */
+    public static final int BOUND_HEIGHT = 445;
+
+    /**
+     * How far the top of the lower half is below the top of the upper half.
+     * The gap between the two is this less {@link #BOUND_HEIGHT}.
+     */
+    public static final int LOWER_OFFSET = 605;
+
+    /**
+     * How far off the right of the screen a new pipe starts.
+     */
+    public static final int SPAWN_OFFSET = 200;
+
+    private final int width = WIDTH;
     private final int height = 1050;
+    private final int boundHeight = BOUND_HEIGHT;
+    private final int lowerOffset = LOWER_OFFSET;
 
     private int x;
-    private final int y;
+    private int lastX;
+    private int y;
     private int previousX;
-    private final int shift;
+    private int shift;
     private int xVel;
-
-    /**
-     * Constructs a new {@code Pipe} object with a random position for its gap
-     * within the specified boundaries.
-     * 
-     * @param screenBounds a {@code Rectangle} specifying the boundaries
-     * @param xVel         the velocity at which the game scrolls
-     */
-    public Pipe(Rectangle screenBounds, int xVel) {
-        this.xVel = xVel;
-        shift = (int) (Math.random() * (screenBounds.getMaxY() - 260)) - 400;
-        x = (int) screenBounds.getMaxX() + 200;
-        previousX = x;
-        y = shift;
-    }
+    private boolean marioPipe;
 
     /**
      * Constructs a new {@code Pipe} object with a specified vertical shift within
      * the specified boundaries. Note that when applying the shift, positive is
      * downward.
      * 
-     * @param screenBounds a {@code Rectangle} specifying the boundaries
-     * @param xVel         the velocity at which the game scrolls
-     * @param shift        the vertical shift to apply
+     * @param screenWidth the width of the screen, which the pipe starts off the
+     *                    right of
+     * @param xVel        the velocity at which the game scrolls
+     * @param shift       the vertical shift to apply
      */
-    public Pipe(Rectangle screenBounds, int xVel, int shift) {
-        this.xVel = xVel;
-        this.shift = shift;
-        x = (int) screenBounds.getMaxX() + 200;
-        previousX = x;
-        y = shift;
+    public Pipe(int screenWidth, int xVel, int shift) {
+        spawn(screenWidth, xVel, shift, false);
     }
 
     // Accessors
@@ -60,24 +64,35 @@ public class Pipe {
     public int getXVel() { return xVel; }
     public int getWidth() { return width; }
     public int getHeight() { return height; }
-    public Rectangle getUpperBound() { return new Rectangle(x, y, width, 445); }
-    public Rectangle getLowerBound() { return new Rectangle(x, shift + 605, width, 445); }
+    public int getUpperY() { return y; }
+    public int getLowerY() { return shift + lowerOffset; }
+    public int getBoundHeight() { return boundHeight; }
+    public boolean isMarioPipe() { return marioPipe; }
+    public Rectangle getUpperBound() { return new Rectangle(x, y, width, boundHeight); }
+    public Rectangle getLowerBound() { return new Rectangle(x, shift + lowerOffset, width, boundHeight); }
 
     // Modifiers
     // -------------------------------------------------------
     public void setXVel(int xVel) { this.xVel = xVel; }
 
     /**
-     * Determines whether another {@code Pipe} object is equal to this {@code Pipe}.
-     * <p>
-     * Returns {@code true} if the two {@code Pipe} objects have the same x and y
-     * values.
+     * Sets this {@code Pipe} up again as a new pipe just off the right of the
+     * screen, so that the same object can be used for pipe after pipe.
      * 
-     * @param p the {@code Pipe} to test for equality with this {@code Pipe}
-     * @return {@code true} if the objects are equal; {@code false} otherwise
+     * @param screenWidth the width of the screen, which the pipe starts off the
+     *                    right of
+     * @param xVel        the velocity at which the game scrolls
+     * @param shift       the vertical shift to apply
+     * @param marioPipe   whether Mario comes out of this pipe
      */
-    public boolean equals(Pipe p) {
-        return x == p.getX() && y == p.getY();
+    public void spawn(int screenWidth, int xVel, int shift, boolean marioPipe) {
+        this.xVel = xVel;
+        this.shift = shift;
+        this.marioPipe = marioPipe;
+        x = screenWidth + SPAWN_OFFSET;
+        previousX = x;
+        lastX = x;
+        y = shift;
     }
 
     /**
@@ -88,6 +103,30 @@ public class Pipe {
         x += xVel;
     }
 
+    /**
+     * Remembers the current position as the one this {@code Pipe} had at the start
+     * of the tick, so that it can be drawn in between ticks.
+     */
+    public void savePosition() {
+        lastX = x;
+    }
+
+    /**
+     * Makes this {@code Pipe} a copy of another one, so that it can be drawn
+     * while the other one moves on.
+     * 
+     * @param other the {@code Pipe} to copy
+     */
+    public void copyFrom(Pipe other) {
+        x = other.x;
+        lastX = other.lastX;
+        y = other.y;
+        previousX = other.previousX;
+        shift = other.shift;
+        xVel = other.xVel;
+        marioPipe = other.marioPipe;
+    }
+
     /**
      * Draws this {@code Pipe} object to the screen.
      * 
@@ -96,10 +135,24 @@ public class Pipe {
      * @param newGraphics whether to draw the new graphics
      */
     public void draw(Graphics g, ImageObserver io, boolean newGraphics) {
+        draw(g, io, newGraphics, 1);
+    }
+
+    /**
+     * Draws this {@code Pipe} object to the screen, in between its position at the
+     * start of the tick and its current position.
+     * 
+     * @param g           the {@code Graphics} object to be drawn on
+     * @param io          the {@code ImageObserver} to be notified
+     * @param newGraphics whether to draw the new graphics
+     * @param alpha       how far between the two positions to draw, from 0 to 1
+     */
+    public void draw(Graphics g, ImageObserver io, boolean newGraphics, double alpha) {
+        int drawX = (int) (lastX + (x - lastX) * alpha);
         if (newGraphics) {
-            g.drawImage(Resources.NEW_PIPE_IMAGE, x, y, width, height, io);
+            Resources.getSprite("new_pipes").draw(g, drawX, y, io);
         } else {
-            g.drawImage(Resources.PIPE_IMAGE, x, y, width, height, io);
+            Resources.getSprite("pipes").draw(g, drawX, y, io);
         }
     }
 
@@ -0,0 +1,115 @@
+package flappybird;
+
+/**
+ * The pipes on the screen, oldest (leftmost) first, in a fixed ring of
+ * {@code Pipe} objects that are used over and over.
+ * <p>
+ * Every {@code Pipe} is created with the ring. Adding a pipe takes the next
+ * free one and sets it up again, and removing the oldest pipe just moves the
+ * start of the ring, so no pipes are allocated or shifted while the game runs.
+ *
+ * @author Jiaxuan Wang
+ */
+public class PipeRing {
+
+    private final Pipe[] pipes;
+    private final int mask;
+    private final int screenWidth;
+    private final int xVel;
+    private int head;
+    private int size;
+
+    /**
+     * Constructs an empty {@code PipeRing} that can hold at least the specified
+     * number of pipes.
+     *
+     * @param capacity    the most pipes that can be on the screen at once
+     * @param screenWidth the width of the screen, which pipes are added off the
+     *                    right of
+     * @param xVel        the velocity at which the game scrolls
+     */
+    public PipeRing(int capacity, int screenWidth, int xVel) {
+        int length = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1); // a power of two
+        this.pipes = new Pipe[length];
+        this.mask = length - 1;
+        this.screenWidth = screenWidth;
+        this.xVel = xVel;
+        for (int i = 0; i < length; i++) {
+            pipes[i] = new Pipe(screenWidth, xVel, 0);
+        }
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public int getCapacity() { return pipes.length; }
+
+    /**
+     * Returns a pipe by its position in the ring.
+     *
+     * @param index the position, where 0 is the oldest pipe
+     * @return the pipe
+     */
+    public Pipe get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return pipes[(head + index) & mask];
+    }
+
+    /**
+     * Returns the oldest pipe.
+     *
+     * @return the leftmost pipe
+     */
+    public Pipe first() {
+        return get(0);
+    }
+
+    /**
+     * Returns the newest pipe.
+     *
+     * @return the rightmost pipe
+     */
+    public Pipe last() {
+        return get(size - 1);
+    }
+
+    /**
+     * Adds a pipe just off the right of the screen, reusing a free {@code Pipe}.
+     *
+     * @param shift     the vertical shift of the gap
+     * @param marioPipe whether Mario comes out of this pipe
+     * @return the added pipe
+     */
+    public Pipe add(int shift, boolean marioPipe) {
+        if (size == pipes.length) {
+            throw new IllegalStateException("More than " + pipes.length + " pipes on the screen");
+        }
+        Pipe pipe = pipes[(head + size) & mask];
+        pipe.spawn(screenWidth, xVel, shift, marioPipe);
+        size++;
+        return pipe;
+    }
+
+    /**
+     * Removes the oldest pipe, freeing it to be used again.
+     */
+    public void removeFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("No pipes to remove");
+        }
+        head = (head + 1) & mask;
+        size--;
+    }
+
+    /**
+     * Removes every pipe.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+}
@@ -0,0 +1,376 @@
+package flappybird;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A recording of a game that plays back exactly as it was played.
+ * <p>
+ * Everything random in a {@link World} comes from its seeds, so a game is
+ * fully described by the seeds and the input given on each tick. Ticks without
+ * input aren't stored at all. Each tick with input is stored as a single
+ * varint holding the number of ticks since the last one, shifted left by
+ * three, with the input bits in the low three bits. A flap is usually one
+ * byte, so a game of a few minutes takes a few hundred bytes.
+ * <p>
+ * The file starts with a header:
+ *
+ * <pre>
+ * int     magic ('FBRP')
+ * byte    format version
+ * short   World.RULES_VERSION the replay was recorded with
+ * long    seed
+ * byte    flags: 1 if every run plays the same course
+ * long    course seed, only if every run plays the same course
+ * varint  number of ticks played
+ * varint  score at the end, to check the playback against
+ * varint  number of inputs
+ * </pre>
+ *
+ * @author Jiaxuan Wang
+ */
+public class Replay {
+
+    public static final int MAGIC = 0x46425250; // "FBRP"
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int FLAG_FIXED_COURSE = 1;
+
+    private static final int INPUT_BITS = 3;
+    private static final int INPUT_MASK = (1 << INPUT_BITS) - 1;
+
+    private final long seed;
+    private final boolean fixedCourse;
+    private final long courseSeed;
+    private final int rulesVersion;
+    private byte[] inputs;
+    private int inputLength;
+    private int inputCount;
+    private int tickCount;
+    private int lastInputTick;
+    private int finalScore;
+
+    // Playback
+    private int readPosition;
+    private int readTick;
+    private int nextInputTick;
+    private int nextInput;
+
+    /**
+     * Constructs an empty {@code Replay} for recording a world from its first
+     * tick.
+     *
+     * @param world the world being recorded, which must not have been stepped yet
+     */
+    public Replay(World world) {
+        this(world.getSeed(), world.isFixedCourse(), world.getCourse().getSeed(), World.RULES_VERSION,
+                new byte[64], 0, 0, 0, 0);
+    }
+
+    private Replay(long seed, boolean fixedCourse, long courseSeed, int rulesVersion, byte[] inputs,
+            int inputLength, int inputCount, int tickCount, int finalScore) {
+        this.seed = seed;
+        this.fixedCourse = fixedCourse;
+        this.courseSeed = courseSeed;
+        this.rulesVersion = rulesVersion;
+        this.inputs = inputs;
+        this.inputLength = inputLength;
+        this.inputCount = inputCount;
+        this.tickCount = tickCount;
+        this.finalScore = finalScore;
+        rewind();
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public long getSeed() { return seed; }
+    public boolean isFixedCourse() { return fixedCourse; }
+    public long getCourseSeed() { return courseSeed; }
+    public int getRulesVersion() { return rulesVersion; }
+    public int getTickCount() { return tickCount; }
+    public int getInputCount() { return inputCount; }
+    public int getFinalScore() { return finalScore; }
+
+    /**
+     * Returns a copy of this replay as it is now, which keeps its contents while
+     * this one goes on recording.
+     *
+     * @return the copy
+     */
+    public Replay copy() {
+        return new Replay(seed, fixedCourse, courseSeed, rulesVersion, Arrays.copyOf(inputs, inputLength),
+                inputLength, inputCount, tickCount, finalScore);
+    }
+
+    /**
+     * Returns a new world set up the way this replay starts.
+     *
+     * @return the world to play this replay in
+     */
+    public World createWorld() {
+        return fixedCourse ? new World(0, seed, courseSeed) : new World(0, seed);
+    }
+
+    /**
+     * Records the input for the next tick.
+     *
+     * @param input the input bits passed to {@link World#step(int)}
+     */
+    public void record(int input) {
+        tickCount++;
+        if (input != 0) {
+            if ((input & ~INPUT_MASK) != 0) {
+                throw new IllegalArgumentException("Input doesn't fit in a replay: " + input);
+            }
+            writeVarint(((long) (tickCount - lastInputTick) << INPUT_BITS) | input);
+            lastInputTick = tickCount;
+            inputCount++;
+        }
+    }
+
+    /**
+     * Sets the score the recorded game had reached, which playback checks itself
+     * against.
+     *
+     * @param score the score after the last recorded tick
+     */
+    public void setFinalScore(int score) {
+        finalScore = score;
+    }
+
+    /**
+     * Starts playback over from the first tick.
+     */
+    public void rewind() {
+        readPosition = 0;
+        readTick = 0;
+        nextInputTick = 0;
+        readNextInput();
+    }
+
+    /**
+     * Returns whether every recorded tick has been played back.
+     *
+     * @return {@code true} if playback is over; {@code false} otherwise
+     */
+    public boolean isFinished() {
+        return readTick >= tickCount;
+    }
+
+    /**
+     * Returns the input for the next tick of playback. Past the end of the
+     * recording, there is no more input.
+     *
+     * @return the input bits to pass to {@link World#step(int)}
+     */
+    public int next() {
+        readTick++;
+        if (readTick != nextInputTick) {
+            return 0;
+        }
+        int input = nextInput;
+        readNextInput();
+        return input;
+    }
+
+    /**
+     * Plays the whole replay in a new world, as fast as possible.
+     *
+     * @return the world after the last recorded tick
+     */
+    public World play() {
+        World world = createWorld();
+        rewind();
+        while (!isFinished()) {
+            world.step(next());
+        }
+        return world;
+    }
+
+    private void readNextInput() {
+        if (readPosition >= inputLength) {
+            nextInputTick = -1;
+            return;
+        }
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = inputs[readPosition++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        nextInputTick += (int) (value >>> INPUT_BITS);
+        nextInput = (int) (value & INPUT_MASK);
+    }
+
+    private void writeVarint(long value) {
+        if (inputLength + 10 > inputs.length) {
+            inputs = Arrays.copyOf(inputs, Math.max(inputs.length * 2, 16));
+        }
+        while ((value & ~0x7FL) != 0) {
+            inputs[inputLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        inputs[inputLength++] = (byte) value;
+    }
+
+    // Reading and writing
+    // -------------------------------------------------------
+
+    /**
+     * Writes this replay.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the replay can't be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        data.writeShort(rulesVersion);
+        data.writeLong(seed);
+        data.writeByte(fixedCourse ? FLAG_FIXED_COURSE : 0);
+        if (fixedCourse) {
+            data.writeLong(courseSeed);
+        }
+        writeVarint(data, tickCount);
+        writeVarint(data, finalScore);
+        writeVarint(data, inputCount);
+        data.write(inputs, 0, inputLength);
+        data.flush();
+    }
+
+    /**
+     * Writes this replay to a file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void write(File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Reads a replay.
+     *
+     * @param in the stream to read from
+     * @return the replay
+     * @throws IOException if the replay can't be read or is not a replay
+     */
+    public static Replay read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        int format = data.readUnsignedByte();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("Unsupported replay format " + format);
+        }
+        int rulesVersion = data.readUnsignedShort();
+        long seed = data.readLong();
+        boolean fixedCourse = (data.readUnsignedByte() & FLAG_FIXED_COURSE) != 0;
+        long courseSeed = fixedCourse ? data.readLong() : 0;
+        int tickCount = (int) readVarint(data);
+        int finalScore = (int) readVarint(data);
+        int inputCount = (int) readVarint(data);
+
+        // Read the inputs as they are, checking that there are as many as promised
+        byte[] inputs = new byte[Math.max(inputCount * 2, 16)];
+        int length = 0;
+        for (int i = 0; i < inputCount; i++) {
+            int b;
+            do {
+                b = data.read();
+                if (b < 0) {
+                    throw new EOFException("Replay ends after " + i + " of " + inputCount + " inputs");
+                }
+                if (length == inputs.length) {
+                    inputs = Arrays.copyOf(inputs, length * 2);
+                }
+                inputs[length++] = (byte) b;
+            } while ((b & 0x80) != 0);
+        }
+        return new Replay(seed, fixedCourse, courseSeed, rulesVersion, inputs, length, inputCount, tickCount,
+                finalScore);
+    }
+
+    /**
+     * Reads a replay from a file.
+     *
+     * @param file the file to read
+     * @return the replay
+     * @throws IOException if the file can't be read or is not a replay
+     */
+    public static Replay read(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Plays replays headless as fast as possible and checks that each one ends
+     * with the score it was recorded with.
+     * <p>
+     * Usage: {@code java flappybird.Replay <replay file>...}
+     *
+     * @param args the replay files
+     * @throws IOException if a replay can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java flappybird.Replay <replay file>...");
+            System.exit(1);
+        }
+        boolean allMatched = true;
+        for (String name : args) {
+            Replay replay = read(new File(name));
+            if (replay.getRulesVersion() != World.RULES_VERSION) {
+                System.out.println(name + ": recorded with rules version " + replay.getRulesVersion()
+                        + ", this game has version " + World.RULES_VERSION);
+            }
+            long start = System.nanoTime();
+            World world = replay.play();
+            double ms = (System.nanoTime() - start) / 1e6;
+            boolean matched = world.getScore() == replay.getFinalScore();
+            allMatched &= matched;
+            System.out.printf("%s: %d ticks, %d inputs, score %d (recorded %d) %s, %.1f ms%n", name,
+                    replay.getTickCount(), replay.getInputCount(), world.getScore(), replay.getFinalScore(),
+                    matched ? "OK" : "MISMATCH", ms);
+        }
+        System.exit(allMatched ? 0 : 2);
+    }
+
+}
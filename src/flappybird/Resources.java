@@ -1,279 +1,384 @@
 package flappybird;
 
 import java.awt.Font;
-import java.awt.FontFormatException;
 import java.awt.GraphicsEnvironment;
-import java.awt.Image;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 import javax.imageio.ImageIO;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.FloatControl;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
 
 /**
  * {@code Resources} class for loading the required images and font.
  */
 public class Resources {
 
+    // Constants
+    // -------------------------------------------------------
+    public static final double NUM_SCALE = 3.4;
+    public static final int AUDIO_BUFFER_FRAMES = 512; // about 12 ms at 44.1 kHz
+    public static final int AUDIO_VOICES = 16;
+
     // Resources
     // -------------------------------------------------------
-    public static Image BIRD_YELLOW_WING_MID;
-    public static Image BIRD_YELLOW_WING_DOWN;
-    public static Image BIRD_YELLOW_WING_UP;
-    public static Image BIRD_BLUE_WING_MID;
-    public static Image BIRD_BLUE_WING_DOWN;
-    public static Image BIRD_BLUE_WING_UP;
-    public static Image BIRD_RED_WING_MID;
-    public static Image BIRD_RED_WING_DOWN;
-    public static Image BIRD_RED_WING_UP;
-
-    public static Image PIPE_IMAGE;
-    public static Image BACKDROP_IMAGE;
-    public static Image GROUND_IMAGE;
-    public static Image READY_TEXT;
-    public static Image GAME_OVER_SCREEN;
-    public static Image GAME_OVER_TEXT;
-    public static Image GAME_OVER_MIDDLE;
-    public static Image OK_BUTTON_IMAGE;
-    public static Image NEW_BEST_IMAGE;
-
-    public static Image DARK_BACKDROP_IMAGE;
-    public static Image NEW_PIPE_IMAGE;
-    public static Image NEW_GROUND_IMAGE;
-    public static Image NEW_READY_TEXT;
-    public static Image NEW_GAME_OVER_TEXT;
-    public static Image NEW_GAME_OVER_MIDDLE;
-    public static Image REPLAY_BUTTON_IMAGE;
-
-    public static Image BRONZE_MEDAL;
-    public static Image SILVER_MEDAL;
-    public static Image GOLD_MEDAL;
-    public static Image PLATINUM_MEDAL;
-
-    public static Image BIG_ZERO;
-    public static Image BIG_ONE;
-    public static Image BIG_TWO;
-    public static Image BIG_THREE;
-    public static Image BIG_FOUR;
-    public static Image BIG_FIVE;
-    public static Image BIG_SIX;
-    public static Image BIG_SEVEN;
-    public static Image BIG_EIGHT;
-    public static Image BIG_NINE;
-
-    public static Image SMALL_ZERO;
-    public static Image SMALL_ONE;
-    public static Image SMALL_TWO;
-    public static Image SMALL_THREE;
-    public static Image SMALL_FOUR;
-    public static Image SMALL_FIVE;
-    public static Image SMALL_SIX;
-    public static Image SMALL_SEVEN;
-    public static Image SMALL_EIGHT;
-    public static Image SMALL_NINE;
-
-    public static Image MARIO_STANDING;
-    public static Image MARIO_JUMPING;
-    public static Image MARIO_THROWING;
-    public static Image FIREBALL_IMAGE;
-
-    public static Clip DIE_SOUND;
-    public static Clip HIT_SOUND;
-    public static Clip SCORE_SOUND;
-    public static Clip SWOOSH_SOUND;
-    public static Clip FLY_SOUND;
-
-    public static Clip MARIO_FIREBALL_SOUND;
-    public static Clip MARIO_JUMP_SOUND;
-    public static Clip MARIO_PIPE_SOUND;
+    private static final Map<String, Sprite> SPRITES = new ConcurrentHashMap<String, Sprite>();
+
+    public static SoundMixer MIXER;
+
+    public static int DIE_SOUND;
+    public static int HIT_SOUND;
+    public static int SCORE_SOUND;
+    public static int SWOOSH_SOUND;
+    public static int FLY_SOUND;
+
+    public static int MARIO_FIREBALL_SOUND;
+    public static int MARIO_JUMP_SOUND;
+    public static int MARIO_PIPE_SOUND;
 
     public static Font FONT;
 
+    // Loading
+    // -------------------------------------------------------
+    private LoadListener listener;
+    private ExecutorService executor;
+    private List<Runnable> tasks;
+    private AtomicInteger loaded;
+    private int total;
+
+    /**
+     * Told about the progress of {@link Resources#loadAsync(LoadListener)}.
+     * Methods are called on the loading threads, possibly at the same time.
+     */
+    public interface LoadListener {
+        /**
+         * Called when an asset has been loaded.
+         * 
+         * @param name   the resource name of the asset
+         * @param nanos  how long it took to load, in nanoseconds
+         * @param loaded the number of assets loaded so far
+         * @param total  the number of assets being loaded
+         */
+        void assetLoaded(String name, long nanos, int loaded, int total);
+
+        /**
+         * Called when an asset could not be loaded.
+         * 
+         * @param name  the resource name of the asset
+         * @param error what went wrong
+         */
+        void assetFailed(String name, Throwable error);
+    }
+
+    private interface Loader {
+        void load() throws Exception;
+    }
+
+    /**
+     * The size an image is drawn at. A width of {@code NATURAL} draws the image
+     * at its own size, and {@code DIGIT} scales it by {@link #NUM_SCALE}.
+     */
+    private static class SpriteSpec {
+        private static final int NATURAL = 0;
+        private static final int DIGIT = -1;
+
+        private final String fileName;
+        private final int width;
+        private final int height;
+
+        private SpriteSpec(String fileName, int width, int height) {
+            this.fileName = fileName;
+            this.width = width;
+            this.height = height;
+        }
+
+        private Sprite create(BufferedImage image) {
+            if (width == NATURAL) {
+                return new Sprite(image);
+            } else if (width == DIGIT) {
+                return new Sprite(image, (int) (NUM_SCALE * image.getWidth()), (int) (NUM_SCALE * image.getHeight()));
+            }
+            return new Sprite(image, width, height);
+        }
+    }
+
+    private Map<String, SpriteSpec> spriteSpecs;
+
     /**
-     * Loads all of the resources for use in the project.
+     * Loads all of the resources for use in the project, waiting until they are
+     * all loaded.
      */
     public void load() {
-        try {
-            BIRD_YELLOW_WING_MID = ImageIO.read(getResource("images/bird_yellow_1.png"));
-            BIRD_YELLOW_WING_DOWN = ImageIO.read(getResource("images/bird_yellow_2.png"));
-            BIRD_YELLOW_WING_UP = ImageIO.read(getResource("images/bird_yellow_3.png"));
-            BIRD_BLUE_WING_MID = ImageIO.read(getResource("images/bird_blue_1.png"));
-            BIRD_BLUE_WING_DOWN = ImageIO.read(getResource("images/bird_blue_2.png"));
-            BIRD_BLUE_WING_UP = ImageIO.read(getResource("images/bird_blue_3.png"));
-            BIRD_RED_WING_MID = ImageIO.read(getResource("images/bird_red_1.png"));
-            BIRD_RED_WING_DOWN = ImageIO.read(getResource("images/bird_red_2.png"));
-            BIRD_RED_WING_UP = ImageIO.read(getResource("images/bird_red_3.png"));
-
-            PIPE_IMAGE = ImageIO.read(getResource("images/pipes.png"));
-            BACKDROP_IMAGE = ImageIO.read(getResource("images/backdrop.png"));
-            GROUND_IMAGE = ImageIO.read(getResource("images/ground.jpg"));
-            READY_TEXT = ImageIO.read(getResource("images/get_ready.png"));
-            GAME_OVER_SCREEN = ImageIO.read(getResource("images/game_over.png"));
-            GAME_OVER_TEXT = ImageIO.read(getResource("images/game_over_text.png"));
-            GAME_OVER_MIDDLE = ImageIO.read(getResource("images/game_end_middle.png"));
-            OK_BUTTON_IMAGE = ImageIO.read(getResource("images/ok_button.png"));
-            NEW_BEST_IMAGE = ImageIO.read(getResource("images/new_best.png"));
-
-            DARK_BACKDROP_IMAGE = ImageIO.read(getResource("images/new_backdrop.png"));
-            NEW_PIPE_IMAGE = ImageIO.read(getResource("images/new_pipes.png"));
-            NEW_GROUND_IMAGE = ImageIO.read(getResource("images/new_ground.png"));
-            NEW_READY_TEXT = ImageIO.read(getResource("images/new_get_ready.png"));
-            NEW_GAME_OVER_TEXT = ImageIO.read(getResource("images/new_game_over_text.png"));
-            NEW_GAME_OVER_MIDDLE = ImageIO.read(getResource("images/new_game_end_middle.png"));
-            REPLAY_BUTTON_IMAGE = ImageIO.read(getResource("images/replay_button.png"));
-
-            BRONZE_MEDAL = ImageIO.read(getResource("images/bronze_medal.png"));
-            SILVER_MEDAL = ImageIO.read(getResource("images/silver_medal.png"));
-            GOLD_MEDAL = ImageIO.read(getResource("images/gold_medal.png"));
-            PLATINUM_MEDAL = ImageIO.read(getResource("images/platinum_medal.png"));
-
-            BIG_ZERO = ImageIO.read(getResource("images/font_big_0.png"));
-            BIG_ONE = ImageIO.read(getResource("images/font_big_1.png"));
-            BIG_TWO = ImageIO.read(getResource("images/font_big_2.png"));
-            BIG_THREE = ImageIO.read(getResource("images/font_big_3.png"));
-            BIG_FOUR = ImageIO.read(getResource("images/font_big_4.png"));
-            BIG_FIVE = ImageIO.read(getResource("images/font_big_5.png"));
-            BIG_SIX = ImageIO.read(getResource("images/font_big_6.png"));
-            BIG_SEVEN = ImageIO.read(getResource("images/font_big_7.png"));
-            BIG_EIGHT = ImageIO.read(getResource("images/font_big_8.png"));
-            BIG_NINE = ImageIO.read(getResource("images/font_big_9.png"));
-
-            SMALL_ZERO = ImageIO.read(getResource("images/font_small_0.png"));
-            SMALL_ONE = ImageIO.read(getResource("images/font_small_1.png"));
-            SMALL_TWO = ImageIO.read(getResource("images/font_small_2.png"));
-            SMALL_THREE = ImageIO.read(getResource("images/font_small_3.png"));
-            SMALL_FOUR = ImageIO.read(getResource("images/font_small_4.png"));
-            SMALL_FIVE = ImageIO.read(getResource("images/font_small_5.png"));
-            SMALL_SIX = ImageIO.read(getResource("images/font_small_6.png"));
-            SMALL_SEVEN = ImageIO.read(getResource("images/font_small_7.png"));
-            SMALL_EIGHT = ImageIO.read(getResource("images/font_small_8.png"));
-            SMALL_NINE = ImageIO.read(getResource("images/font_small_9.png"));
-
-            MARIO_STANDING = ImageIO.read(getResource("images/mario_standing.png"));
-            MARIO_JUMPING = ImageIO.read(getResource("images/mario_jumping.png"));
-            MARIO_THROWING = ImageIO.read(getResource("images/mario_throwing.png"));
-            FIREBALL_IMAGE = ImageIO.read(getResource("images/fireball.png"));
-
-            DIE_SOUND = loadAudioClip(getResource("sounds/sfx_die.wav"), -15.0f);
-            HIT_SOUND = loadAudioClip(getResource("sounds/sfx_hit.wav"), -15.0f);
-            SCORE_SOUND = loadAudioClip(getResource("sounds/sfx_point.wav"), -15.0f);
-            SWOOSH_SOUND = loadAudioClip(getResource("sounds/sfx_swooshing.wav"), -15.0f);
-            FLY_SOUND = loadAudioClip(getResource("sounds/sfx_wing.wav"), -15.0f);
-
-            MARIO_FIREBALL_SOUND = loadAudioClip(getResource("sounds/smb3_fireball.wav"), -15.0f);
-            MARIO_JUMP_SOUND = loadAudioClip(getResource("sounds/smb3_jump.wav"), -15.0f);
-            MARIO_PIPE_SOUND = loadAudioClip(getResource("sounds/smb3_pipe.wav"), -15.0f);
+        loadAsync(null).join();
+    }
+
+    /**
+     * Starts loading all of the resources on a pool of threads and returns
+     * straight away.
+     * <p>
+     * The listener, if there is one, is told about every asset as soon as it has
+     * been loaded or has failed to load, on the thread that loaded it. The
+     * returned future completes once every asset has been tried, and the static
+     * fields of this class may only be read after that. An asset that fails to
+     * load is reported and left {@code null}, the same as before.
+     * 
+     * @param listener the listener to report progress to, or {@code null}
+     * @return a future that completes when loading is over
+     */
+    public CompletableFuture<Void> loadAsync(LoadListener listener) {
+        final long start = System.nanoTime();
+        this.listener = listener;
+        tasks = new ArrayList<Runnable>();
+        loaded = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "Resources");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MIXER = new SoundMixer(openAudioSink(), AUDIO_BUFFER_FRAMES, AUDIO_VOICES);
 
+        defineSprites();
+        loadSprites();
+
+        sound("sounds/sfx_die.wav", -15.0f, id -> DIE_SOUND = id);
+        sound("sounds/sfx_hit.wav", -15.0f, id -> HIT_SOUND = id);
+        sound("sounds/sfx_point.wav", -15.0f, id -> SCORE_SOUND = id);
+        sound("sounds/sfx_swooshing.wav", -15.0f, id -> SWOOSH_SOUND = id);
+        sound("sounds/sfx_wing.wav", -15.0f, id -> FLY_SOUND = id);
+
+        sound("sounds/smb3_fireball.wav", -15.0f, id -> MARIO_FIREBALL_SOUND = id);
+        sound("sounds/smb3_jump.wav", -15.0f, id -> MARIO_JUMP_SOUND = id);
+        sound("sounds/smb3_pipe.wav", -15.0f, id -> MARIO_PIPE_SOUND = id);
+
+        asset("fonts/04B_19__.TTF", () -> {
             InputStream is = getClass().getResourceAsStream("/fonts/04B_19__.TTF");
             FONT = Font.createFont(Font.TRUETYPE_FONT, is).deriveFont(40.0f);
             GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
             ge.registerFont(FONT);
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (FontFormatException e) {
-            e.printStackTrace();
-        } catch (UnsupportedAudioFileException e) {
-            e.printStackTrace();
-        } catch (LineUnavailableException e) {
-            e.printStackTrace();
+        });
+
+        total = tasks.size();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[total];
+        for (int i = 0; i < total; i++) {
+            futures[i] = CompletableFuture.runAsync(tasks.get(i), executor);
         }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
+        executor.shutdown();
+        return all.thenRun(() -> {
+            MIXER.start();
+            System.out.printf("Loaded %d assets in %.1f ms%n", total, (System.nanoTime() - start) / 1e6);
+        });
+    }
 
+    /**
+     * Returns the sprite for an image, by the image's file name without its
+     * extension, such as {@code "bird_yellow_1"}. The sprites can only be used
+     * once loading is over.
+     * 
+     * @param name the name of the image
+     * @return the sprite, or {@code null} if there is no such image or it could
+     *         not be loaded
+     */
+    public static Sprite getSprite(String name) {
+        return SPRITES.get(name);
     }
 
     /**
-     * Reads the high score saved in the text file.
+     * Returns the number of assets being loaded by the last call to
+     * {@link #loadAsync(LoadListener)}.
      * 
-     * @return the high score
+     * @return the number of assets
      */
-    public int readHighScore() {
-        File file = new File("high_score.txt");
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String highScore = reader.readLine();
-            reader.close();
-            return Integer.parseInt(highScore);
-        } catch (FileNotFoundException e) {
-            try {
-                file.createNewFile();
-                BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-                writer.write('0');
-                writer.close();
-            } catch (IOException e1) {
-                e1.printStackTrace();
-            }
-            return 0;
-        } catch (NumberFormatException e) {
-            try {
-                BufferedWriter writer = new BufferedWriter(new FileWriter(file, false));
-                writer.write('0');
-                writer.close();
-            } catch (IOException e1) {
-                e1.printStackTrace();
+    public int getAssetCount() {
+        return total;
+    }
+
+    /**
+     * Returns a {@code URL} object for reading the resource with the given name.
+     * 
+     * @param name the resource name
+     * @return {@code URL} object that points to the resource
+     */
+    private URL getResource(String name) {
+        return getClass().getClassLoader().getResource(name);
+    }
+
+    /**
+     * Lists every image the game draws and the size it is drawn at.
+     */
+    private void defineSprites() {
+        spriteSpecs = new LinkedHashMap<String, SpriteSpec>();
+
+        sprite("bird_yellow_1.png", 55, 38);
+        sprite("bird_yellow_2.png", 55, 38);
+        sprite("bird_yellow_3.png", 55, 38);
+        sprite("bird_blue_1.png", 55, 38);
+        sprite("bird_blue_2.png", 55, 38);
+        sprite("bird_blue_3.png", 55, 38);
+        sprite("bird_red_1.png", 55, 38);
+        sprite("bird_red_2.png", 55, 38);
+        sprite("bird_red_3.png", 55, 38);
+
+        sprite("pipes.png", 94, 1050);
+        sprite("backdrop.png", SpriteSpec.NATURAL, SpriteSpec.NATURAL);
+        sprite("ground.jpg", SpriteSpec.NATURAL, SpriteSpec.NATURAL);
+        sprite("get_ready.png", 300, 76);
+        sprite("game_over.png", SpriteSpec.NATURAL, SpriteSpec.NATURAL);
+        sprite("game_over_text.png", 333, 67);
+        sprite("game_end_middle.png", 400, 202);
+        sprite("ok_button.png", 142, 50);
+        sprite("new_best.png", 57, 25);
+
+        sprite("new_backdrop.png", SpriteSpec.NATURAL, SpriteSpec.NATURAL);
+        sprite("new_pipes.png", 94, 1050);
+        sprite("new_ground.png", SpriteSpec.NATURAL, SpriteSpec.NATURAL);
+        sprite("new_get_ready.png", 325, 88);
+        sprite("new_game_over_text.png", 340, 74);
+        sprite("new_game_end_middle.png", 400, 202);
+        sprite("replay_button.png", 184, 103);
+
+        sprite("bronze_medal.png", 77, 77);
+        sprite("silver_medal.png", 77, 77);
+        sprite("gold_medal.png", 77, 77);
+        sprite("platinum_medal.png", 77, 77);
+
+        for (int i = 0; i <= 9; i++) {
+            sprite("font_big_" + i + ".png", SpriteSpec.DIGIT, SpriteSpec.DIGIT);
+            sprite("font_small_" + i + ".png", SpriteSpec.DIGIT, SpriteSpec.DIGIT);
+        }
+
+        sprite("mario_standing.png", 41, 74);
+        sprite("mario_jumping.png", 41, 74);
+        sprite("mario_throwing.png", 41, 74);
+        sprite("fireball.png", 24, 27);
+    }
+
+    private void sprite(String fileName, int width, int height) {
+        String name = fileName.substring(0, fileName.lastIndexOf('.'));
+        spriteSpecs.put(name, new SpriteSpec(fileName, width, height));
+    }
+
+    /**
+     * Adds the loading of the images to the tasks for the pool. If the build
+     * packed the small images into an atlas, each sheet is decoded once and cut
+     * into the sprites in it; everything else is loaded from its own file.
+     */
+    private void loadSprites() {
+        Map<String, SpriteSpec> remaining = new LinkedHashMap<String, SpriteSpec>(spriteSpecs);
+
+        TextureAtlas atlas = readAtlas();
+        if (atlas != null) {
+            for (int i = 0; i < atlas.getSheets().size(); i++) {
+                List<TextureAtlas.Region> regions = new ArrayList<TextureAtlas.Region>();
+                for (TextureAtlas.Region region : atlas.getRegions()) {
+                    if (region.getSheet() == i && remaining.containsKey(region.getName())) {
+                        regions.add(region);
+                        remaining.remove(region.getName());
+                    }
+                }
+                String sheetName = "images/" + atlas.getSheets().get(i);
+                asset(sheetName, () -> {
+                    BufferedImage sheet = ImageIO.read(getResource(sheetName));
+                    for (TextureAtlas.Region region : regions) {
+                        SPRITES.put(region.getName(), spriteSpecs.get(region.getName()).create(region.cut(sheet)));
+                    }
+                });
             }
-            return 0;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return 0;
+        }
+
+        for (Map.Entry<String, SpriteSpec> entry : remaining.entrySet()) {
+            String name = entry.getKey();
+            SpriteSpec spec = entry.getValue();
+            asset("images/" + spec.fileName,
+                    () -> SPRITES.put(name, spec.create(ImageIO.read(getResource("images/" + spec.fileName)))));
         }
     }
 
     /**
-     * Writes the new high score to the text file.
+     * Reads the atlas index, if the build made one.
      * 
-     * @param score the new high score
+     * @return the atlas, or {@code null} if there isn't one
      */
-    public void writeHighScore(int score) {
-        File file = new File("high_score.txt");
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-            writer.write(Integer.toString(score));
-            writer.close();
+    private TextureAtlas readAtlas() {
+        URL index = getResource("images/" + TextureAtlas.INDEX_NAME);
+        if (index == null) {
+            return null;
+        }
+        try (InputStream in = index.openStream()) {
+            return TextureAtlas.read(in);
         } catch (IOException e) {
+            System.err.println("Could not read the texture atlas, loading images one by one");
             e.printStackTrace();
+            return null;
         }
     }
 
     /**
-     * Returns a {@code URL} object for reading the resource with the given name.
+     * Decodes a sound effect on the pool and adds it to the mixer.
      * 
-     * @param name the resource name
-     * @return {@code URL} object that points to the resource
+     * @param name   the resource name
+     * @param gain   the audio gain to apply, in decibels
+     * @param target where to store the number of the sound
      */
-    private URL getResource(String name) {
-        return getClass().getClassLoader().getResource(name);
+    private void sound(String name, float gain, IntConsumer target) {
+        asset(name, () -> target.accept(MIXER.load(getResource(name), gain)));
+    }
+
+    /**
+     * Adds the loading of one asset to the tasks for the pool, timing it and
+     * reporting it to the listener.
+     * 
+     * @param name   the resource name, for reporting
+     * @param loader the code that loads the asset
+     */
+    private void asset(String name, Loader loader) {
+        tasks.add(() -> {
+            long start = System.nanoTime();
+            try {
+                loader.load();
+            } catch (Exception e) {
+                System.err.println("Could not load " + name);
+                e.printStackTrace();
+                if (listener != null) {
+                    listener.assetFailed(name, e);
+                }
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            int count = loaded.incrementAndGet();
+            if (listener != null) {
+                listener.assetLoaded(name, nanos, count, total);
+            }
+        });
     }
 
     /**
-     * Returns a {@code Clip} object containing the audio data from a file
-     * referenced by a {@code URL}.
+     * Returns a sink that plays through the default audio device, or one that
+     * throws the audio away if there is no device to play on.
      * 
-     * @param url  {@code URL} object that points to the audio file
-     * @param gain the audio gain to apply, in decibels
-     * @return a {@code Clip} with the audio data
-     * @throws IOException
-     * @throws UnsupportedAudioFileException
-     * @throws LineUnavailableException
+     * @return the sink for the sound mixer
      */
-    private static Clip loadAudioClip(URL url, float gain)
-            throws UnsupportedAudioFileException, IOException, LineUnavailableException {
-        AudioInputStream ais = AudioSystem.getAudioInputStream(url);
-        Clip clip = AudioSystem.getClip();
-        clip.open(ais);
-        FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-        gainControl.setValue(gain);
-        return clip;
+    private static SoundMixer.Sink openAudioSink() {
+        try {
+            return new SoundMixer.LineSink();
+        } catch (LineUnavailableException e) {
+            System.out.println("No audio line available, sound is disabled: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("No audio device available, sound is disabled: " + e.getMessage());
+        }
+        return new SoundMixer.NullSink();
     }
 
 }
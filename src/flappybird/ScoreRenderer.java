@@ -0,0 +1,211 @@
+package flappybird;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws numbers with an image for each digit.
+ * <p>
+ * Every number is composited into a single image the first time it is drawn
+ * with a set of digit images and an overlap, and that image is kept in a
+ * least-recently-used cache. As long as the score doesn't change, drawing it
+ * is a single blit and allocates nothing. Digits are taken from the number
+ * arithmetically, without converting it to a {@code String}. When the
+ * {@code Graphics} is scaled, the finished number is scaled once, the same way
+ * as a {@code Sprite}, rather than its digits on every frame.
+ *
+ * @author Jiaxuan Wang
+ */
+public class ScoreRenderer {
+
+    private static final int MAX_DIGITS = 10; // enough for any int
+
+    private final Cache cache;
+    private final Key lookup = new Key();
+    private final int[] digitBuffer = new int[MAX_DIGITS];
+
+    /**
+     * Constructs a {@code ScoreRenderer} that keeps up to the specified number of
+     * rendered numbers.
+     *
+     * @param capacity the maximum number of cached numbers
+     */
+    public ScoreRenderer(int capacity) {
+        cache = new Cache(capacity);
+    }
+
+    /**
+     * Returns the width, in pixels, of a number drawn with the specified digit
+     * images and overlap.
+     * <p>
+     * A {@code Sprite} array must be specified that contains an image for each
+     * digit, in the order 0-9, already scaled by {@code Resources.NUM_SCALE}.
+     *
+     * @param score     the number to get the length of
+     * @param numImages array containing an image for each digit
+     * @param overlap   the amount to overlap, in pixels
+     * @return the total width of the drawn score
+     */
+    public static int getWidth(int score, Sprite[] numImages, int overlap) {
+        int sourceWidth = 0;
+        int digitCount = 0;
+        int rest = score;
+        do {
+            sourceWidth += numImages[rest % 10].getSourceWidth();
+            digitCount++;
+            rest /= 10;
+        } while (rest > 0);
+
+        int width = (int) (sourceWidth * Resources.NUM_SCALE);
+        return width - (digitCount - 1) * overlap;
+    }
+
+    /**
+     * Draws a number with its top left corner at the specified position.
+     * <p>
+     * When specifying the overlap, a larger number creates more overlap. This means
+     * that a negative overlap adds space between each digit.
+     *
+     * @param score     the number to draw, which must not be negative
+     * @param x         the <i>x</i> coordinate
+     * @param y         the <i>y</i> coordinate
+     * @param numImages array containing an image for each digit
+     * @param overlap   the amount to overlap, in pixels
+     * @param g         the {@code Graphics} object to be drawn on
+     * @param io        the {@code ImageObserver} object to be notified
+     */
+    public void draw(int score, int x, int y, Sprite[] numImages, int overlap, Graphics g, ImageObserver io) {
+        Graphics2D g2 = (Graphics2D) g;
+        CachedScore entry = getEntry(score, numImages, overlap, g2.getDeviceConfiguration());
+        AffineTransform transform = g2.getTransform();
+        double scale = Sprite.uniformScale(transform);
+        if (scale == 1 || scale == 0) {
+            g.drawImage(entry.image, x, y, io);
+        } else {
+            if (entry.sprite == null) {
+                entry.sprite = new Sprite(entry.image);
+            }
+            entry.sprite.draw(g, x, y, io);
+        }
+    }
+
+    /**
+     * Returns the composited image of a number, rendering it if it is not cached
+     * for the specified configuration.
+     *
+     * @param score     the number
+     * @param numImages array containing an image for each digit
+     * @param overlap   the amount to overlap, in pixels
+     * @param gc        the configuration the image will be drawn on, or
+     *                  {@code null} if it is unknown
+     * @return the image of the number
+     */
+    public Image getImage(int score, Sprite[] numImages, int overlap, GraphicsConfiguration gc) {
+        return getEntry(score, numImages, overlap, gc).image;
+    }
+
+    private CachedScore getEntry(int score, Sprite[] numImages, int overlap, GraphicsConfiguration gc) {
+        lookup.set(score, numImages, overlap);
+        CachedScore entry = cache.get(lookup);
+        if (entry == null) {
+            entry = new CachedScore();
+            Key key = new Key();
+            key.set(score, numImages, overlap);
+            cache.put(key, entry);
+        }
+        if (entry.image == null || entry.config != gc) {
+            entry.image = render(score, numImages, overlap, gc);
+            entry.config = gc;
+            entry.sprite = null;
+        }
+        return entry;
+    }
+
+    private Image render(int score, Sprite[] numImages, int overlap, GraphicsConfiguration gc) {
+        // Pull the digits out from the right, then draw them from the left
+        int digitCount = 0;
+        int rest = score;
+        int height = 0;
+        do {
+            digitBuffer[digitCount++] = rest % 10;
+            height = Math.max(height, numImages[rest % 10].getHeight());
+            rest /= 10;
+        } while (rest > 0);
+
+        int width = getWidth(score, numImages, overlap);
+        BufferedImage image;
+        if (gc != null) {
+            image = gc.createCompatibleImage(Math.max(width, 1), height, Transparency.TRANSLUCENT);
+        } else {
+            image = new BufferedImage(Math.max(width, 1), height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        Graphics2D g = image.createGraphics();
+        int digitX = 0;
+        for (int i = digitCount - 1; i >= 0; i--) {
+            Sprite digit = numImages[digitBuffer[i]];
+            g.drawImage(digit.getImage(gc), digitX, 0, null);
+            digitX += Resources.NUM_SCALE * digit.getSourceWidth() - overlap;
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static class Key {
+        private int score;
+        private Sprite[] numImages;
+        private int overlap;
+
+        private void set(int score, Sprite[] numImages, int overlap) {
+            this.score = score;
+            this.numImages = numImages;
+            this.overlap = overlap;
+        }
+
+        public int hashCode() {
+            return (score * 31 + System.identityHashCode(numImages)) * 31 + overlap;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return score == k.score && numImages == k.numImages && overlap == k.overlap;
+        }
+    }
+
+    private static class CachedScore {
+        private Image image;
+        private GraphicsConfiguration config;
+        private Sprite sprite; // the image for drawing scaled, made when first needed
+    }
+
+    /**
+     * The rendered numbers, in order of use, dropping the least recently used
+     * once there are more than the capacity.
+     */
+    private static class Cache extends LinkedHashMap<Key, CachedScore> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Cache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedScore> eldest) {
+            return size() > capacity;
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+package flappybird;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Keeps the high score and the best scores ever played, saved in a text file.
+ * <p>
+ * The first line of the file is the high score, so files from older versions
+ * of the game still load. Each line after it is one of the best scores, as
+ * {@code score,epochSeconds}, best first.
+ * <p>
+ * Recording a score only changes memory and wakes a background writer, so the
+ * game never waits for the disk. Scores recorded while the writer is busy are
+ * saved together by its next write. Every write goes to a temporary file that
+ * is forced to the disk and then renamed over the real one, so the file is
+ * always either the old or the new version, never half written.
+ *
+ * @author Jiaxuan Wang
+ */
+public class ScoreStore {
+
+    private final File file;
+    private final File tempFile;
+    private final int[] scores;
+    private final long[] times;
+    private int count;
+    private int highScore;
+
+    private final Object lock = new Object();
+    private boolean dirty;
+    private boolean closed;
+    private Thread writer;
+
+    /**
+     * Constructs a {@code ScoreStore} that saves to the specified file and keeps
+     * up to the specified number of best scores.
+     *
+     * @param file        the file to save to
+     * @param historySize the number of best scores to keep
+     */
+    public ScoreStore(File file, int historySize) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".tmp");
+        this.scores = new int[historySize];
+        this.times = new long[historySize];
+    }
+
+    /**
+     * Returns the high score.
+     *
+     * @return the high score
+     */
+    public int getHighScore() {
+        synchronized (lock) {
+            return highScore;
+        }
+    }
+
+    /**
+     * Returns the best scores, best first.
+     *
+     * @return a copy of the best scores
+     */
+    public int[] getBestScores() {
+        synchronized (lock) {
+            return Arrays.copyOf(scores, count);
+        }
+    }
+
+    /**
+     * Returns when each of the best scores was played, in seconds since the
+     * epoch, in the same order as {@link #getBestScores()}.
+     *
+     * @return a copy of the times of the best scores
+     */
+    public long[] getBestScoreTimes() {
+        synchronized (lock) {
+            return Arrays.copyOf(times, count);
+        }
+    }
+
+    /**
+     * Reads the saved scores and starts the background writer. A missing file is
+     * the same as no scores. A file that can't be read is reported, nothing in it
+     * is kept, and it is renamed to {@code .bad} so that the next write doesn't
+     * replace it and it can still be looked at.
+     */
+    public void load() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            int best = (line == null) ? 0 : Integer.parseInt(line.trim());
+            synchronized (lock) {
+                highScore = best;
+                while ((line = reader.readLine()) != null) {
+                    int comma = line.indexOf(',');
+                    if (comma > 0) {
+                        insert(Integer.parseInt(line.substring(0, comma)), Long.parseLong(line.substring(comma + 1)));
+                    }
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing saved yet
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Could not read " + file + ", starting from no high score");
+            e.printStackTrace();
+            synchronized (lock) {
+                highScore = 0;
+                count = 0;
+            }
+            moveAside();
+        }
+
+        writer = new Thread(this::runWriter, "ScoreStore");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "ScoreStore shutdown"));
+    }
+
+    /**
+     * Records the score of a finished game, updating the high score and the best
+     * scores, and queues a write. Returns without touching the disk.
+     *
+     * @param score the score
+     */
+    public void record(int score) {
+        synchronized (lock) {
+            boolean changed = insert(score, System.currentTimeMillis() / 1000);
+            if (score > highScore) {
+                highScore = score;
+                changed = true;
+            }
+            if (changed) {
+                dirty = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Sets the high score back to 0 and forgets the best scores, and queues a
+     * write.
+     */
+    public void reset() {
+        synchronized (lock) {
+            highScore = 0;
+            count = 0;
+            dirty = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes anything that is still queued and stops the background writer.
+     * Called automatically when the JVM shuts down.
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Adds a score to the best scores if it is good enough. Must be called
+     * holding the lock.
+     */
+    private boolean insert(int score, long time) {
+        int i = count;
+        if (i == scores.length) {
+            if (scores.length == 0 || score <= scores[i - 1]) {
+                return false;
+            }
+            i--;
+        } else {
+            count++;
+        }
+        // Shift the worse scores down; ties keep the older score first
+        while (i > 0 && scores[i - 1] < score) {
+            scores[i] = scores[i - 1];
+            times[i] = times[i - 1];
+            i--;
+        }
+        scores[i] = score;
+        times[i] = time;
+        return true;
+    }
+
+    /**
+     * Renames a file that couldn't be read to {@code .bad}, replacing any older
+     * one, so that it isn't overwritten by the next write.
+     */
+    private void moveAside() {
+        File bad = new File(file.getPath() + ".bad");
+        try {
+            Files.move(file.toPath(), bad.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.err.println("Moved " + file + " to " + bad);
+        } catch (IOException e) {
+            System.err.println("Could not move " + file + " to " + bad);
+            e.printStackTrace();
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            String contents;
+            boolean last;
+            synchronized (lock) {
+                while (!dirty && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (!dirty) {
+                    return;
+                }
+                contents = format();
+                dirty = false;
+                last = closed;
+            }
+            try {
+                write(contents);
+            } catch (IOException e) {
+                System.err.println("Could not save the scores to " + file);
+                e.printStackTrace();
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the file contents for the current scores. Must be called holding
+     * the lock.
+     */
+    private String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(highScore).append('\n');
+        for (int i = 0; i < count; i++) {
+            sb.append(scores[i]).append(',').append(times[i]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void write(String contents) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            w.write(contents);
+            w.flush();
+            out.getChannel().force(true);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package flappybird;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands {@link WorldSnapshot}s from the thread that steps the world to the
+ * thread that draws it, always giving the drawing thread the latest one.
+ * <p>
+ * This is a triple buffer: of three snapshots allocated up front, one is being
+ * filled in by the writer, one is being drawn by the reader, and the third is
+ * the latest one published, waiting in the middle. Publishing swaps the
+ * writer's snapshot with the middle one, and the reader swaps its snapshot
+ * with the middle one only if a newer one has been published since. Both swaps
+ * are a single {@code getAndSet} of one {@code AtomicInteger} that holds the
+ * index of the middle snapshot and whether it is new, so neither side ever
+ * waits for the other or allocates, and a slow draw only means that some
+ * snapshots are skipped.
+ * <p>
+ * Each side only ever touches its own snapshot, and the swap is what passes a
+ * snapshot from one side to the other, so a snapshot is never read while it is
+ * being filled in.
+ *
+ * @author Jiaxuan Wang
+ */
+public class SnapshotBuffer {
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4; // set while the middle snapshot hasn't been taken by the reader
+
+    private final WorldSnapshot[] snapshots = new WorldSnapshot[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Only touched by the writer
+    private int back = 0;
+    private boolean backSkipped;
+
+    // Only touched by the reader
+    private int front = 2;
+    private boolean anyTaken;
+
+    /**
+     * Constructs a {@code SnapshotBuffer} with three empty snapshots.
+     *
+     * @param inputCapacity the most input times each snapshot keeps
+     */
+    public SnapshotBuffer(int inputCapacity) {
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new WorldSnapshot(inputCapacity);
+        }
+    }
+
+    /**
+     * Returns the snapshot to fill in before the next {@link #publish()}. This
+     * must only be called from the writer.
+     *
+     * @return the writer's snapshot
+     */
+    public WorldSnapshot getBack() {
+        return snapshots[back];
+    }
+
+    /**
+     * Returns whether the writer's snapshot was published but replaced by a
+     * newer one before the reader took it, so it was never drawn. This must
+     * only be called from the writer.
+     *
+     * @return {@code true} if the writer's snapshot was skipped
+     */
+    public boolean isBackSkipped() {
+        return backSkipped;
+    }
+
+    /**
+     * Publishes the writer's snapshot as the latest one, and gives the writer
+     * another snapshot to fill in next.
+     */
+    public void publish() {
+        int old = middle.getAndSet(back | FRESH);
+        back = old & INDEX;
+        backSkipped = (old & FRESH) != 0;
+    }
+
+    /**
+     * Returns the latest published snapshot, which stays the reader's until the
+     * next call. This must only be called from the reader.
+     *
+     * @return the latest snapshot, or {@code null} if none has been published
+     */
+    public WorldSnapshot latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+            anyTaken = true;
+        }
+        return anyTaken ? snapshots[front] : null;
+    }
+
+}
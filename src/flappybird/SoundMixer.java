@@ -0,0 +1,427 @@
+package flappybird;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A software mixer that plays any number of overlapping sound effects through
+ * a single audio line.
+ * <p>
+ * Every sound is decoded once, when it is loaded, into 16-bit stereo samples at
+ * {@link #SAMPLE_RATE} with its gain already applied. {@link #play(int)} only
+ * puts the sound's number into a lock-free queue, so it never blocks the
+ * thread that calls it. The mixer's own thread takes sounds off the queue,
+ * adds up every playing voice into a buffer of {@code bufferFrames} frames and
+ * writes it to a {@link Sink}. The same sound can be played again while it is
+ * still playing, and each play gets its own voice. If the sink can't be opened,
+ * the mixer thread says so once and carries on with a {@link NullSink}.
+ * <p>
+ * The mixer can also be driven by hand with {@link #mix()} without starting the
+ * thread, for example with a {@link RecordingSink} to check what was mixed on a
+ * machine without a sound card.
+ *
+ * @author Jiaxuan Wang
+ */
+public class SoundMixer implements Runnable {
+
+    public static final int SAMPLE_RATE = 44100;
+    public static final int CHANNELS = 2;
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+
+    private static final int QUEUE_CAPACITY = 256; // must be a power of two
+    private static final long STOP_TIMEOUT_MILLIS = 1000; // a line can take this long to finish a write
+
+    private Sink sink; // replaced with a NullSink by the mixer thread if it can't be opened
+    private final int bufferFrames;
+    private final List<short[]> sounds = new ArrayList<short[]>();
+
+    // Trigger queue: any thread may add, only the mixer takes. Slots hold sound + 1
+    // so that 0 means "not written yet".
+    private final AtomicIntegerArray queue = new AtomicIntegerArray(QUEUE_CAPACITY);
+    private final AtomicLong queueTail = new AtomicLong();
+    private volatile long queueHead;
+
+    // Voices, only touched by the thread that mixes
+    private final short[][] voiceSamples;
+    private final int[] voicePositions;
+
+    private final int[] mixBuffer;
+    private final byte[] outputBuffer;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Constructs a {@code SoundMixer} writing to the specified sink.
+     *
+     * @param sink         where the mixed audio goes
+     * @param bufferFrames the number of frames mixed at a time; smaller buffers
+     *                     mean lower latency but more work for the mixer thread
+     * @param voices       the number of sounds that can play at the same time
+     */
+    public SoundMixer(Sink sink, int bufferFrames, int voices) {
+        if (bufferFrames <= 0 || voices <= 0) {
+            throw new IllegalArgumentException("bufferFrames and voices must be positive");
+        }
+        this.sink = sink;
+        this.bufferFrames = bufferFrames;
+        voiceSamples = new short[voices][];
+        voicePositions = new int[voices];
+        mixBuffer = new int[bufferFrames * CHANNELS];
+        outputBuffer = new byte[bufferFrames * CHANNELS * 2];
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public int getBufferFrames() { return bufferFrames; }
+    public int getSoundCount() { return sounds.size(); }
+
+    /**
+     * Returns the latency added by one mix buffer, in milliseconds.
+     *
+     * @return the length of one buffer in milliseconds
+     */
+    public double getBufferMillis() {
+        return bufferFrames * 1000.0 / SAMPLE_RATE;
+    }
+
+    /**
+     * Decodes a sound effect and returns the number to play it with. Sounds must
+     * be loaded before the mixer is started.
+     *
+     * @param url  {@code URL} object that points to the audio file
+     * @param gain the audio gain to apply, in decibels
+     * @return the number of the sound
+     * @throws IOException                   if the file can't be read
+     * @throws UnsupportedAudioFileException if the file isn't a supported format
+     */
+    public int load(URL url, float gain) throws UnsupportedAudioFileException, IOException {
+        return add(decode(url, gain));
+    }
+
+    /**
+     * Adds an already decoded sound and returns the number to play it with.
+     *
+     * @param samples interleaved stereo samples at {@link #SAMPLE_RATE}
+     * @return the number of the sound
+     */
+    public synchronized int add(short[] samples) {
+        sounds.add(samples);
+        return sounds.size() - 1;
+    }
+
+    /**
+     * Asks for a sound to be played as soon as the next buffer is mixed. This
+     * never blocks; if the queue is full the sound is dropped.
+     *
+     * @param sound the number returned when the sound was loaded
+     * @return {@code true} if the sound was queued; {@code false} if it was dropped
+     */
+    public boolean play(int sound) {
+        while (true) {
+            long tail = queueTail.get();
+            if (tail - queueHead >= QUEUE_CAPACITY) {
+                return false;
+            }
+            if (queueTail.compareAndSet(tail, tail + 1)) {
+                queue.set((int) (tail & (QUEUE_CAPACITY - 1)), sound + 1);
+                return true;
+            }
+        }
+    }
+
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "SoundMixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the mixer thread and waits for it to close the sink.
+     */
+    public void stop() {
+        Thread thread = this.thread;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        this.thread = null;
+        thread.interrupt();
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void run() {
+        try {
+            openSink();
+            while (running) {
+                mix();
+            }
+        } finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * Opens the sink, or falls back to a {@code NullSink} if it can't be opened,
+     * so that the game goes on without sound.
+     */
+    private void openSink() {
+        try {
+            sink.open(FORMAT, outputBuffer.length * 2);
+        } catch (LineUnavailableException | RuntimeException e) {
+            System.out.println("Could not open the audio line, sound is disabled: " + e);
+            NullSink fallback = new NullSink();
+            fallback.open(FORMAT, outputBuffer.length * 2);
+            sink = fallback;
+        }
+    }
+
+    /**
+     * Starts any queued sounds, mixes one buffer of every playing voice and
+     * writes it to the sink.
+     */
+    public void mix() {
+        takeQueuedSounds();
+
+        int[] mix = mixBuffer;
+        Arrays.fill(mix, 0);
+        for (int v = 0; v < voiceSamples.length; v++) {
+            short[] samples = voiceSamples[v];
+            if (samples == null) {
+                continue;
+            }
+            int position = voicePositions[v];
+            int count = Math.min(mix.length, samples.length - position);
+            for (int i = 0; i < count; i++) {
+                mix[i] += samples[position + i];
+            }
+            position += count;
+            if (position >= samples.length) {
+                voiceSamples[v] = null;
+            }
+            voicePositions[v] = position;
+        }
+
+        byte[] out = outputBuffer;
+        for (int i = 0, b = 0; i < mix.length; i++, b += 2) {
+            int sample = mix[i];
+            if (sample > Short.MAX_VALUE) {
+                sample = Short.MAX_VALUE;
+            } else if (sample < Short.MIN_VALUE) {
+                sample = Short.MIN_VALUE;
+            }
+            out[b] = (byte) sample;
+            out[b + 1] = (byte) (sample >> 8);
+        }
+        sink.write(out, 0, out.length);
+    }
+
+    private void takeQueuedSounds() {
+        long head = queueHead;
+        while (true) {
+            int slot = (int) (head & (QUEUE_CAPACITY - 1));
+            int entry = queue.get(slot);
+            if (entry == 0) {
+                break; // empty, or claimed but not written yet
+            }
+            queue.set(slot, 0);
+            head++;
+            startVoice(entry - 1);
+        }
+        queueHead = head;
+    }
+
+    private void startVoice(int sound) {
+        if (sound < 0 || sound >= sounds.size()) {
+            return;
+        }
+        // Use a free voice, or take over the one that has played the longest
+        int voice = 0;
+        for (int v = 0; v < voiceSamples.length; v++) {
+            if (voiceSamples[v] == null) {
+                voice = v;
+                break;
+            }
+            if (voicePositions[v] > voicePositions[voice]) {
+                voice = v;
+            }
+        }
+        voiceSamples[voice] = sounds.get(sound);
+        voicePositions[voice] = 0;
+    }
+
+    /**
+     * Decodes an audio file into interleaved 16-bit stereo samples at
+     * {@link #SAMPLE_RATE}, with the specified gain applied.
+     *
+     * @param url  {@code URL} object that points to the audio file
+     * @param gain the audio gain to apply, in decibels
+     * @return the decoded samples
+     * @throws IOException                   if the file can't be read
+     * @throws UnsupportedAudioFileException if the file isn't a supported format
+     */
+    public static short[] decode(URL url, float gain) throws UnsupportedAudioFileException, IOException {
+        AudioInputStream in = AudioSystem.getAudioInputStream(url);
+        AudioFormat source = in.getFormat();
+        AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, source.getChannels(), true, false);
+        AudioInputStream converted = AudioSystem.getAudioInputStream(pcm, in);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = converted.read(chunk)) > 0) {
+            bytes.write(chunk, 0, read);
+        }
+        converted.close();
+
+        byte[] data = bytes.toByteArray();
+        int channels = pcm.getChannels();
+        int sourceFrames = data.length / (2 * channels);
+        double step = pcm.getSampleRate() / SAMPLE_RATE;
+        int frames = (int) (sourceFrames / step);
+        double scale = Math.pow(10, gain / 20.0);
+
+        short[] samples = new short[frames * CHANNELS];
+        for (int f = 0; f < frames; f++) {
+            // Linear interpolation between the two nearest source frames
+            double position = f * step;
+            int index = (int) position;
+            int next = Math.min(index + 1, sourceFrames - 1);
+            double weight = position - index;
+            for (int c = 0; c < CHANNELS; c++) {
+                int sourceChannel = Math.min(c, channels - 1);
+                double a = sampleAt(data, index, sourceChannel, channels);
+                double b = sampleAt(data, next, sourceChannel, channels);
+                samples[f * CHANNELS + c] = (short) Math.round((a + (b - a) * weight) * scale);
+            }
+        }
+        return samples;
+    }
+
+    private static int sampleAt(byte[] data, int frame, int channel, int channels) {
+        int i = (frame * channels + channel) * 2;
+        return (data[i] & 0xff) | (data[i + 1] << 8);
+    }
+
+    // -------------------------------------------------------
+    // Sinks
+    // -------------------------------------------------------
+
+    /**
+     * Somewhere for the mixed audio to go.
+     */
+    public interface Sink {
+        void open(AudioFormat format, int bufferBytes) throws LineUnavailableException;
+        void write(byte[] data, int offset, int length);
+        void close();
+    }
+
+    /**
+     * Plays the mixed audio through a {@code SourceDataLine}. Writing blocks until
+     * the line has room, which is what paces the mixer thread.
+     */
+    public static class LineSink implements Sink {
+        private final SourceDataLine line;
+
+        /**
+         * Gets a line for {@link SoundMixer#FORMAT} from the default audio device.
+         *
+         * @throws LineUnavailableException if there is no such line
+         */
+        public LineSink() throws LineUnavailableException {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+        }
+
+        public void open(AudioFormat format, int bufferBytes) throws LineUnavailableException {
+            line.open(format, bufferBytes);
+            line.start();
+        }
+
+        public void write(byte[] data, int offset, int length) {
+            line.write(data, offset, length);
+        }
+
+        public void close() {
+            line.drain();
+            line.close();
+        }
+    }
+
+    /**
+     * Throws the mixed audio away, for machines without a sound card. Writing
+     * waits as long as the audio would take to play, like a real line, so that
+     * a mixer thread writing to it doesn't spin.
+     */
+    public static class NullSink implements Sink {
+        private long bytesPerSecond;
+
+        public void open(AudioFormat format, int bufferBytes) {
+            bytesPerSecond = (long) (format.getFrameRate() * format.getFrameSize());
+        }
+
+        public void write(byte[] data, int offset, int length) {
+            if (bytesPerSecond == 0) {
+                return;
+            }
+            try {
+                Thread.sleep(length * 1000L / bytesPerSecond);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public void close() {}
+    }
+
+    /**
+     * Keeps everything that was mixed so that it can be checked afterwards.
+     */
+    public static class RecordingSink implements Sink {
+        private final ByteArrayOutputStream recording = new ByteArrayOutputStream();
+
+        public void open(AudioFormat format, int bufferBytes) {}
+
+        public synchronized void write(byte[] data, int offset, int length) {
+            recording.write(data, offset, length);
+        }
+
+        public void close() {}
+
+        /**
+         * Returns the recorded audio as interleaved stereo samples.
+         *
+         * @return the recorded samples
+         */
+        public synchronized short[] getSamples() {
+            byte[] data = recording.toByteArray();
+            short[] samples = new short[data.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((data[2 * i] & 0xff) | (data[2 * i + 1] << 8));
+            }
+            return samples;
+        }
+    }
+
+}
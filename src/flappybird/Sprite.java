@@ -0,0 +1,192 @@
+package flappybird;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+
+/**
+ * An image that is always drawn at the same size.
+ * <p>
+ * The first time a {@code Sprite} is drawn, its source image is scaled once to
+ * its final size into an image that is compatible with the
+ * {@code GraphicsConfiguration} being drawn on. Every draw after that is an
+ * unscaled copy of that image, which Java2D can keep in video memory. If the
+ * sprite is drawn on a different configuration, for example after the window
+ * was moved to another screen, the cached image is rebuilt for it.
+ * <p>
+ * When the {@code Graphics} being drawn on is scaled, for example to fill a
+ * large screen, the sprite is scaled once more to its size in screen pixels,
+ * with nearest neighbour interpolation so the pixel art stays sharp, and drawn
+ * without the scale at the screen pixel its corner falls on. A sprite drawn at
+ * any scale is still a single unscaled copy, and the image is only made again
+ * when the scale changes.
+ *
+ * @author Jiaxuan Wang
+ */
+public class Sprite {
+
+    static final AffineTransform IDENTITY = new AffineTransform();
+
+    private final Image source;
+    private final int width;
+    private final int height;
+
+    private GraphicsConfiguration config;
+    private Image image;
+    private GraphicsConfiguration scaledConfig;
+    private double scale;
+    private Image scaledImage;
+
+    /**
+     * Constructs a {@code Sprite} that draws the source image at its own size.
+     *
+     * @param source the image to draw
+     */
+    public Sprite(Image source) {
+        this(source, source.getWidth(null), source.getHeight(null));
+    }
+
+    /**
+     * Constructs a {@code Sprite} that draws the source image at the specified
+     * size.
+     *
+     * @param source the image to draw
+     * @param width  the width to draw the image at
+     * @param height the height to draw the image at
+     */
+    public Sprite(Image source, int width, int height) {
+        this.source = source;
+        this.width = width;
+        this.height = height;
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public Image getSource() { return source; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getSourceWidth() { return source.getWidth(null); }
+    public int getSourceHeight() { return source.getHeight(null); }
+
+    /**
+     * Draws this {@code Sprite} with its top left corner at the specified
+     * position.
+     *
+     * @param g  the {@code Graphics} object to be drawn on
+     * @param x  the <i>x</i> coordinate
+     * @param y  the <i>y</i> coordinate
+     * @param io the {@code ImageObserver} to be notified
+     */
+    public void draw(Graphics g, int x, int y, ImageObserver io) {
+        Graphics2D g2 = (Graphics2D) g;
+        GraphicsConfiguration gc = g2.getDeviceConfiguration();
+        AffineTransform transform = g2.getTransform();
+        double scale = uniformScale(transform);
+        if (scale == 1 || scale == 0) {
+            g.drawImage(getImage(gc), x, y, io);
+            return;
+        }
+        Image scaled = getImage(gc, scale);
+        g2.setTransform(IDENTITY);
+        g2.drawImage(scaled, toDevice(x, scale, transform.getTranslateX()),
+                toDevice(y, scale, transform.getTranslateY()), io);
+        g2.setTransform(transform);
+    }
+
+    /**
+     * Returns the scaled image for the specified {@code GraphicsConfiguration},
+     * creating it if the cached one was made for a different configuration.
+     *
+     * @param gc the configuration the image will be drawn on, or {@code null} if
+     *           it is unknown
+     * @return the image scaled to the size of this {@code Sprite}
+     */
+    public Image getImage(GraphicsConfiguration gc) {
+        if (image == null || gc != config) {
+            image = createImage(gc);
+            config = gc;
+        }
+        return image;
+    }
+
+    /**
+     * Returns the image scaled to the size of this {@code Sprite} times a scale,
+     * for drawing without a transform, creating it if the cached one was made
+     * for a different configuration or scale.
+     *
+     * @param gc    the configuration the image will be drawn on, or {@code null}
+     *              if it is unknown
+     * @param scale how many screen pixels there are to each pixel of the sprite
+     * @return the scaled image
+     */
+    public Image getImage(GraphicsConfiguration gc, double scale) {
+        if (scale == 1) {
+            return getImage(gc);
+        }
+        if (scaledImage == null || gc != scaledConfig || scale != this.scale) {
+            scaledImage = createImage(gc, scaledSize(width, scale), scaledSize(height, scale));
+            scaledConfig = gc;
+            this.scale = scale;
+        }
+        return scaledImage;
+    }
+
+    private Image createImage(GraphicsConfiguration gc) {
+        return createImage(gc, width, height);
+    }
+
+    private Image createImage(GraphicsConfiguration gc, int width, int height) {
+        int transparency = (source instanceof Transparency) ? ((Transparency) source).getTransparency()
+                : Transparency.TRANSLUCENT;
+        BufferedImage scaled;
+        if (gc != null) {
+            scaled = gc.createCompatibleImage(width, height, transparency);
+        } else if (transparency == Transparency.OPAQUE) {
+            scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        } else {
+            scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        // The default interpolation is nearest neighbour, which keeps the pixel art
+        // as sharp as it was when it was scaled on every frame
+        Graphics2D g = scaled.createGraphics();
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * Returns the scale of a transform that scales both axes by the same amount
+     * and moves, or 0 if it also flips, rotates or stretches.
+     */
+    static double uniformScale(AffineTransform transform) {
+        double scale = transform.getScaleX();
+        if (scale <= 0 || transform.getScaleY() != scale || transform.getShearX() != 0
+                || transform.getShearY() != 0) {
+            return 0;
+        }
+        return scale;
+    }
+
+    /**
+     * Returns the screen pixel a coordinate falls on. Images drawn side by side
+     * at these pixels, with their sizes from {@link #scaledSize(int, double)},
+     * meet or overlap by a pixel, so they never leave a gap.
+     */
+    static int toDevice(double coordinate, double scale, double translate) {
+        return (int) Math.floor(coordinate * scale + translate);
+    }
+
+    /**
+     * Returns the number of screen pixels a length covers, rounded up.
+     */
+    static int scaledSize(int length, double scale) {
+        return Math.max(1, (int) Math.ceil(length * scale - 1e-9));
+    }
+
+}
@@ -0,0 +1,163 @@
+package flappybird;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The index of a texture atlas: a few sheet images with many small images
+ * packed into them, and the named region each small image occupies.
+ * <p>
+ * The atlas is built by {@link AtlasPacker} when the project is compiled. The
+ * index is a small binary file next to the sheets:
+ *
+ * <pre>
+ * int     magic ('FLAT')
+ * short   version
+ * short   sheet count
+ *         for each sheet: UTF file name
+ * short   region count
+ *         for each region: UTF name, byte sheet, short x, short y, short width, short height
+ * </pre>
+ *
+ * Region names are the file names of the packed images without their
+ * extension, such as {@code bird_yellow_1}.
+ *
+ * @author Jiaxuan Wang
+ */
+public class TextureAtlas {
+
+    public static final int MAGIC = 0x464C4154; // "FLAT"
+    public static final int VERSION = 1;
+    public static final String INDEX_NAME = "atlas.idx";
+
+    private final List<String> sheets;
+    private final List<Region> regions;
+
+    /**
+     * A named rectangle in one of the sheets.
+     */
+    public static class Region {
+        private final String name;
+        private final int sheet;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        public Region(String name, int sheet, int x, int y, int width, int height) {
+            this.name = name;
+            this.sheet = sheet;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        // Accessors
+        // -------------------------------------------------------
+        public String getName() { return name; }
+        public int getSheet() { return sheet; }
+        public int getX() { return x; }
+        public int getY() { return y; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+
+        /**
+         * Returns this region of a decoded sheet. The returned image shares its
+         * pixels with the sheet rather than copying them.
+         *
+         * @param sheetImage the sheet this region is in
+         * @return the image in this region
+         */
+        public BufferedImage cut(BufferedImage sheetImage) {
+            return sheetImage.getSubimage(x, y, width, height);
+        }
+    }
+
+    /**
+     * Constructs a {@code TextureAtlas} from its sheet file names and regions.
+     *
+     * @param sheets  the file names of the sheets
+     * @param regions the regions in the sheets
+     */
+    public TextureAtlas(List<String> sheets, List<Region> regions) {
+        this.sheets = Collections.unmodifiableList(new ArrayList<String>(sheets));
+        this.regions = Collections.unmodifiableList(new ArrayList<Region>(regions));
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public List<String> getSheets() { return sheets; }
+    public List<Region> getRegions() { return regions; }
+
+    /**
+     * Reads an atlas index.
+     *
+     * @param in the stream to read the index from
+     * @return the atlas
+     * @throws IOException if the index can't be read or is not an atlas index
+     */
+    public static TextureAtlas read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a texture atlas index");
+        }
+        int version = data.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported texture atlas version " + version);
+        }
+
+        int sheetCount = data.readUnsignedShort();
+        List<String> sheets = new ArrayList<String>(sheetCount);
+        for (int i = 0; i < sheetCount; i++) {
+            sheets.add(data.readUTF());
+        }
+
+        int regionCount = data.readUnsignedShort();
+        List<Region> regions = new ArrayList<Region>(regionCount);
+        for (int i = 0; i < regionCount; i++) {
+            String name = data.readUTF();
+            int sheet = data.readUnsignedByte();
+            if (sheet >= sheetCount) {
+                throw new IOException("Region " + name + " is in missing sheet " + sheet);
+            }
+            regions.add(new Region(name, sheet, data.readUnsignedShort(), data.readUnsignedShort(),
+                    data.readUnsignedShort(), data.readUnsignedShort()));
+        }
+        return new TextureAtlas(sheets, regions);
+    }
+
+    /**
+     * Writes this atlas index.
+     *
+     * @param out the stream to write the index to
+     * @throws IOException if the index can't be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeShort(sheets.size());
+        for (String sheet : sheets) {
+            data.writeUTF(sheet);
+        }
+        data.writeShort(regions.size());
+        for (Region region : regions) {
+            data.writeUTF(region.name);
+            data.writeByte(region.sheet);
+            data.writeShort(region.x);
+            data.writeShort(region.y);
+            data.writeShort(region.width);
+            data.writeShort(region.height);
+        }
+        data.flush();
+    }
+
+}
@@ -0,0 +1,91 @@
+package flappybird;
+
+import java.util.Arrays;
+
+/**
+ * A sequence of actions to be performed at fixed ticks after a starting tick,
+ * such as Mario's throws and jumps.
+ * <p>
+ * The cues are defined as data, as pairs of a tick (relative to the start of
+ * the sequence) and an action number, and are kept sorted by tick in two
+ * {@code int} arrays. A cursor points at the next cue, so finding out which
+ * actions are due in a tick is a comparison or two no matter how long the
+ * sequence is, and nothing is boxed or allocated while it runs.
+ *
+ * @author Jiaxuan Wang
+ */
+public class Timeline {
+
+    /**
+     * Returned by {@link #poll(int)} when no more actions are due.
+     */
+    public static final int NONE = -1;
+
+    private final int[] cueTicks;
+    private final int[] cueActions;
+    private int startTick;
+    private int cursor;
+
+    /**
+     * Constructs a {@code Timeline} from pairs of {tick, action}. The pairs don't
+     * have to be in order; cues at the same tick are performed in the order they
+     * are given. The timeline does nothing until it is started.
+     *
+     * @param cues the cues, each an array of a tick and an action number
+     */
+    public Timeline(int[][] cues) {
+        int[][] sorted = cues.clone();
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a[0], b[0])); // stable, keeps the given order of ties
+
+        cueTicks = new int[sorted.length];
+        cueActions = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i][1] < 0) {
+                throw new IllegalArgumentException("Action numbers must not be negative: " + sorted[i][1]);
+            }
+            cueTicks[i] = sorted[i][0];
+            cueActions[i] = sorted[i][1];
+        }
+        cursor = cueTicks.length;
+    }
+
+    /**
+     * Starts the sequence over, counting cue ticks from the specified tick.
+     *
+     * @param tick the tick the sequence starts at
+     */
+    public void start(int tick) {
+        startTick = tick;
+        cursor = 0;
+    }
+
+    /**
+     * Returns whether every cue has been performed or skipped.
+     *
+     * @return {@code true} if the sequence is over; {@code false} otherwise
+     */
+    public boolean isFinished() {
+        return cursor == cueTicks.length;
+    }
+
+    /**
+     * Returns the next action that is due at the specified tick, or {@link #NONE}
+     * if there isn't one. Call this until it returns {@code NONE} to get every
+     * action for the tick. Cues for earlier ticks that were never polled are
+     * skipped, just like a cue is missed if it isn't checked in its own tick.
+     *
+     * @param tick the current tick
+     * @return the action number, or {@code NONE}
+     */
+    public int poll(int tick) {
+        int offset = tick - startTick;
+        while (cursor < cueTicks.length && cueTicks[cursor] < offset) {
+            cursor++;
+        }
+        if (cursor < cueTicks.length && cueTicks[cursor] == offset) {
+            return cueActions[cursor++];
+        }
+        return NONE;
+    }
+
+}
@@ -0,0 +1,303 @@
+package flappybird;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * Turns a replay into video without a display, as fast as the machine allows
+ * rather than in real time.
+ * <p>
+ * The replay is played back in a {@code FlappyBirdGame} that is never shown,
+ * and after each tick the game draws the world into an offscreen image with
+ * the same code that draws it on the screen. Drawing is done on one thread in
+ * the order of the ticks, so the frames are exactly the ones the player saw.
+ * Encoding the frames is slower than drawing them, so it is handed to worker
+ * threads: a frame is drawn into one of a small ring of images, and the oldest
+ * frame still being encoded is waited for before its image is drawn over. The
+ * ring bounds the work queue, so drawing never gets far ahead of encoding, and
+ * the images, along with the buffers frames are encoded into, are allocated
+ * once for each place in the ring.
+ * <p>
+ * Frames are written either as a numbered sequence of PNG files, each one
+ * compressed by the worker that encoded it, or as one uncompressed YUV4MPEG2
+ * file, which most video tools read. For YUV4MPEG2 the workers convert the
+ * frames from RGB, and the frames are written to the file in order as they
+ * come back. The header marks the colors as full range, which is what the
+ * conversion gives.
+ *
+ * @author Jiaxuan Wang
+ */
+public class VideoExporter {
+
+    public static final int WIDTH = FlappyBirdGame.FRAME_WIDTH;
+    public static final int HEIGHT = FlappyBirdGame.FRAME_HEIGHT;
+
+    private static final int TICKS_PER_SECOND = 60;
+    private static final int TAIL_TICKS = 90; // the game over screen is kept up after the replay ends
+    private static final int FRAMES_PER_THREAD = 2; // frames in flight for each worker
+    private static final byte[] Y4M_FRAME_MARKER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int Y4M_FRAME_SIZE = Y4M_FRAME_MARKER.length + WIDTH * HEIGHT
+            + 2 * (WIDTH / 2) * (HEIGHT / 2);
+
+    private final int threads;
+    private final int ticksPerFrame;
+    private final int ringSize;
+
+    /**
+     * Constructs a {@code VideoExporter}.
+     *
+     * @param threads       the number of threads encoding frames
+     * @param ticksPerFrame the number of ticks between frames: 1 for 60 frames
+     *                      per second, 2 for 30
+     */
+    public VideoExporter(int threads, int ticksPerFrame) {
+        if (threads <= 0 || ticksPerFrame <= 0) {
+            throw new IllegalArgumentException("Threads: " + threads + ", ticks per frame: " + ticksPerFrame);
+        }
+        this.threads = threads;
+        this.ticksPerFrame = ticksPerFrame;
+        this.ringSize = threads * FRAMES_PER_THREAD;
+    }
+
+    /**
+     * Writes every frame of a replay to a directory, as {@code frame-000000.png},
+     * {@code frame-000001.png} and so on.
+     *
+     * @param replay the replay to play back
+     * @param dir    the directory to write the frames to
+     * @return the number of frames written
+     * @throws IOException if a frame can't be written
+     */
+    public int exportPng(Replay replay, final File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not make the directory " + dir);
+        }
+        return export(replay, new Encoder() {
+            public byte[] encode(int frame, int slot, BufferedImage image) throws IOException {
+                File file = new File(dir, String.format("frame-%06d.png", frame));
+                if (!ImageIO.write(image, "png", file)) {
+                    throw new IOException("No PNG writer for " + file);
+                }
+                return null;
+            }
+
+            public void write(byte[] encoded) {
+            }
+        });
+    }
+
+    /**
+     * Writes every frame of a replay to an uncompressed YUV4MPEG2 file, with
+     * full-range 4:2:0 chroma.
+     *
+     * @param replay the replay to play back
+     * @param file   the file to write
+     * @return the number of frames written
+     * @throws IOException if the file can't be written
+     */
+    public int exportY4m(Replay replay, File file) throws IOException {
+        try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 20)) {
+            String header = String.format("YUV4MPEG2 W%d H%d F%d:%d Ip A1:1 C420jpeg XCOLORRANGE=FULL\n", WIDTH,
+                    HEIGHT, TICKS_PER_SECOND, ticksPerFrame);
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            final byte[][] buffers = new byte[ringSize][Y4M_FRAME_SIZE];
+            return export(replay, new Encoder() {
+                public byte[] encode(int frame, int slot, BufferedImage image) {
+                    return toY4mFrame(image, buffers[slot]);
+                }
+
+                public void write(byte[] encoded) throws IOException {
+                    out.write(encoded);
+                }
+            });
+        }
+    }
+
+    /**
+     * Encodes a frame on a worker thread, and writes what it was encoded to on
+     * the drawing thread, in the order of the frames. A frame is written before
+     * the next frame in the same place in the ring is encoded, so an encoder
+     * can keep a buffer for each place.
+     */
+    private interface Encoder {
+        byte[] encode(int frame, int slot, BufferedImage image) throws IOException;
+
+        void write(byte[] encoded) throws IOException;
+    }
+
+    private int export(Replay replay, final Encoder encoder) throws IOException {
+        FlappyBirdGame game = new FlappyBirdGame(replay);
+        game.awaitLoaded();
+        game.interpolation = 1;
+        World world = game.getWorld();
+
+        BufferedImage[] images = new BufferedImage[ringSize];
+        Graphics2D[] graphics = new Graphics2D[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            images[i] = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            graphics[i] = images[i].createGraphics();
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "VideoExporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<Future<byte[]>>(ringSize);
+
+        int frames = 0;
+        try {
+            int tailTicks = 0;
+            for (int tick = 0; tailTicks < TAIL_TICKS; tick++) {
+                if (tick % ticksPerFrame == 0) {
+                    // The image of the frame drawn ringSize frames ago is reused
+                    if (inFlight.size() == ringSize) {
+                        finish(inFlight.poll(), encoder);
+                    }
+                    final int frame = frames++;
+                    final int slot = frame % ringSize;
+                    final BufferedImage image = images[slot];
+                    game.drawWorld(graphics[slot]);
+                    inFlight.add(workers.submit(() -> encoder.encode(frame, slot, image)));
+                }
+                if (replay.isFinished()) {
+                    world.step(0);
+                    tailTicks++;
+                } else {
+                    world.step(replay.next());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                finish(inFlight.poll(), encoder);
+            }
+        } finally {
+            workers.shutdownNow();
+            for (Graphics2D g : graphics) {
+                g.dispose();
+            }
+        }
+        return frames;
+    }
+
+    private static void finish(Future<byte[]> future, Encoder encoder) throws IOException {
+        try {
+            encoder.write(future.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not encode a frame", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding", e);
+        }
+    }
+
+    /**
+     * Converts a frame to a YUV4MPEG2 frame, with full-range BT.601 colors and
+     * the chroma of each 2x2 block of pixels averaged.
+     *
+     * @param image the frame
+     * @param data  the buffer to convert it into, {@code Y4M_FRAME_SIZE} bytes
+     * @return the buffer
+     */
+    static byte[] toY4mFrame(BufferedImage image, byte[] data) {
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int lumaSize = WIDTH * HEIGHT;
+        int chromaSize = (WIDTH / 2) * (HEIGHT / 2);
+        System.arraycopy(Y4M_FRAME_MARKER, 0, data, 0, Y4M_FRAME_MARKER.length);
+
+        int luma = Y4M_FRAME_MARKER.length;
+        int cb = luma + lumaSize;
+        int cr = cb + chromaSize;
+        for (int y = 0; y < HEIGHT; y += 2) {
+            for (int x = 0; x < WIDTH; x += 2) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    for (int dx = 0; dx < 2; dx++) {
+                        int i = (y + dy) * WIDTH + x + dx;
+                        int p = rgb[i];
+                        int pr = (p >> 16) & 0xFF;
+                        int pg = (p >> 8) & 0xFF;
+                        int pb = p & 0xFF;
+                        data[luma + i] = (byte) ((77 * pr + 150 * pg + 29 * pb + 128) >> 8);
+                        r += pr;
+                        g += pg;
+                        b += pb;
+                    }
+                }
+                // The sums are of four pixels, so shift two more to average them
+                data[cb++] = (byte) clamp(128 + ((-43 * r - 85 * g + 128 * b + 512) >> 10));
+                data[cr++] = (byte) clamp(128 + ((128 * r - 107 * g - 21 * b + 512) >> 10));
+            }
+        }
+        return data;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(value, 255));
+    }
+
+    /**
+     * Exports a replay to video.
+     * <p>
+     * Usage:
+     * {@code java flappybird.VideoExporter [-threads <n>] [-fps 60|30|20] <replay file> <output>}
+     * <p>
+     * If the output ends with {@code .y4m} it is written as one YUV4MPEG2 file,
+     * and otherwise it is a directory the frames are written to as PNG files.
+     *
+     * @param args the options, the replay file and the output
+     * @throws IOException if the replay can't be read or the video can't be
+     *                     written
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int fps = TICKS_PER_SECOND;
+        int i = 0;
+        for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-fps")) {
+                fps = Integer.parseInt(args[i + 1]);
+            } else {
+                i = args.length;
+            }
+        }
+        if (args.length - i != 2 || fps <= 0 || TICKS_PER_SECOND % fps != 0) {
+            System.err.println("Usage: java flappybird.VideoExporter [-threads <n>] [-fps 60|30|20]"
+                    + " <replay file> <output.y4m or directory>");
+            System.exit(1);
+        }
+
+        Replay replay = Replay.read(new File(args[i]));
+        File output = new File(args[i + 1]);
+        VideoExporter exporter = new VideoExporter(threads, TICKS_PER_SECOND / fps);
+        long start = System.nanoTime();
+        int frames;
+        if (output.getName().endsWith(".y4m")) {
+            frames = exporter.exportY4m(replay, output);
+        } else {
+            frames = exporter.exportPng(replay, output);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d frames (%.1f s of play) written to %s in %.1f s with %d threads%n", frames,
+                (double) frames / fps, output, seconds, threads);
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,428 @@
+package flappybird;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code World} class contains the simulation of a game of Flappy Bird,
+ * separated from any drawing code.
+ * <p>
+ * Each call to {@link #step(int)} advances the game by exactly one tick, which
+ * corresponds to one frame of the original game. The world never touches a
+ * {@code Graphics} object, an image or an audio line, so it can be stepped as
+ * fast as the CPU allows on a machine without a display. Anything the world
+ * wants the outside to do, such as playing a sound or saving a new high score,
+ * is reported as a bit in {@link #getEvents()} after each step.
+ * <p>
+ * Everything random in the world comes from a single generator seeded when
+ * the world is created, so a world with the same seed given the same input on
+ * the same ticks plays out exactly the same way. This is what makes a
+ * {@link Replay} possible. The gaps in the pipes come from a
+ * {@link CourseGenerator}, which is either seeded anew for every run or plays
+ * the same course every run, such as the course of the day.
+ *
+ * @author Jiaxuan Wang
+ */
+public class World {
+
+    // Modes
+    // -------------------------------------------------------
+    public static final int READY = 0;
+    public static final int PLAYING = 1;
+    public static final int CRASHED = 2;
+    public static final int MARIO = 3;
+
+    // Input
+    // -------------------------------------------------------
+    public static final int FLAP = 1;
+    public static final int RESTART = 1 << 1;
+    public static final int TOGGLE_GRAPHICS = 1 << 2;
+
+    // Events
+    // -------------------------------------------------------
+    public static final int SOUND_DIE = 1;
+    public static final int SOUND_HIT = 1 << 1;
+    public static final int SOUND_SCORE = 1 << 2;
+    public static final int SOUND_SWOOSH = 1 << 3;
+    public static final int SOUND_FLY = 1 << 4;
+    public static final int SOUND_MARIO_FIREBALL = 1 << 5;
+    public static final int SOUND_MARIO_JUMP = 1 << 6;
+    public static final int SOUND_MARIO_PIPE = 1 << 7;
+    public static final int HIGH_SCORE_CHANGED = 1 << 8;
+    public static final int GAME_OVER = 1 << 9;
+
+    // Constants
+    // -------------------------------------------------------
+    public static final int WIDTH = 500;
+    public static final int GROUND_LEVEL = 577;
+    public static final int X_VELOCITY = -3; // must be negative to move left
+    public static final int PIPE_SPACING_X = WIDTH - 80; // a new pipe is added once the last one is left of this
+
+    /**
+     * The version of the rules of the game. Change this whenever a change to the
+     * world would make an old {@link Replay} play out differently.
+     */
+    public static final int RULES_VERSION = 3;
+
+    public static final int COURSE_LOOKAHEAD = 8;
+    private static final int PIPE_CAPACITY = 8; // about twice as many as fit on the screen
+    private static final int MARIO_PIPE_SHIFT = -330; // a low gap, so Mario has room on the pipe
+
+    // Mario's sequence, in ticks after he comes out of the pipe
+    // -------------------------------------------------------
+    private static final int CUE_THROW = 0;
+    private static final int CUE_STAND = 1;
+    private static final int CUE_JUMP = 2;
+    private static final int CUE_FINAL_JUMP = 3;
+
+    private static final int[][] MARIO_SEQUENCE = {
+            { 160, CUE_THROW }, { 165, CUE_STAND },
+            { 170, CUE_THROW }, { 175, CUE_STAND },
+            { 180, CUE_THROW }, { 185, CUE_STAND },
+            { 220, CUE_JUMP },
+            { 280, CUE_THROW }, { 285, CUE_STAND },
+            { 290, CUE_THROW }, { 295, CUE_STAND },
+            { 300, CUE_THROW }, { 305, CUE_STAND },
+            { 350, CUE_FINAL_JUMP } };
+
+    // Instance Variables
+    // -------------------------------------------------------
+    private int tick;
+    private int events;
+    private int score;
+    private int highScore;
+    private int mode;
+    private long scrollX;
+    private long lastScrollX;
+    private boolean newHighScore;
+    private boolean newGraphicsEnabled;
+    private boolean dark;
+
+    private final long seed;
+    private final Random random;
+    private final CourseGenerator course;
+    private final boolean fixedCourse;
+    private final Bird bird;
+    private final PipeRing pipes;
+    private int nextPipeToScore;
+    private final Mario mario;
+    private final List<Fireball> fireballs;
+    private final List<Fireball> spareFireballs;
+    private final Timeline marioTimeline;
+
+    /**
+     * Constructs a new {@code World} in the ready phase with the specified high
+     * score and a random seed.
+     *
+     * @param highScore the best score achieved so far
+     */
+    public World(int highScore) {
+        this(highScore, new Random().nextLong());
+    }
+
+    /**
+     * Constructs a new {@code World} in the ready phase with the specified high
+     * score and seed. Every run gets a new course.
+     *
+     * @param highScore the best score achieved so far
+     * @param seed      the seed for everything random in the world
+     */
+    public World(int highScore, long seed) {
+        this(highScore, seed, false, 0);
+    }
+
+    /**
+     * Constructs a new {@code World} in the ready phase with the specified high
+     * score and seed, where every run plays the course with the specified seed,
+     * such as {@link CourseGenerator#dailySeed()}.
+     *
+     * @param highScore  the best score achieved so far
+     * @param seed       the seed for everything random in the world
+     * @param courseSeed the seed of the course for every run
+     */
+    public World(int highScore, long seed, long courseSeed) {
+        this(highScore, seed, true, courseSeed);
+    }
+
+    private World(int highScore, long seed, boolean fixedCourse, long courseSeed) {
+        this.highScore = highScore;
+        this.seed = seed;
+        this.fixedCourse = fixedCourse;
+        random = new Random(seed);
+        score = 0;
+        mode = READY;
+        scrollX = 0;
+        newHighScore = false;
+        newGraphicsEnabled = true;
+        dark = random.nextBoolean();
+
+        bird = new Bird();
+        bird.setColor(randomBirdColor());
+        course = new CourseGenerator(fixedCourse ? courseSeed : random.nextLong(), COURSE_LOOKAHEAD);
+        pipes = new PipeRing(PIPE_CAPACITY, WIDTH, X_VELOCITY);
+        pipes.add(course.next(), false);
+        mario = new Mario();
+        fireballs = new ArrayList<Fireball>();
+        spareFireballs = new ArrayList<Fireball>();
+        marioTimeline = new Timeline(MARIO_SEQUENCE);
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public int getTick() { return tick; }
+    public long getSeed() { return seed; }
+    public CourseGenerator getCourse() { return course; }
+    public boolean isFixedCourse() { return fixedCourse; }
+    public int getEvents() { return events; }
+    public int getScore() { return score; }
+    public int getHighScore() { return highScore; }
+    public int getMode() { return mode; }
+    public long getScrollX() { return scrollX; }
+    public long getLastScrollX() { return lastScrollX; }
+    public boolean isNewHighScore() { return newHighScore; }
+    public boolean isNewGraphicsEnabled() { return newGraphicsEnabled; }
+    public boolean isDark() { return dark; }
+    public Bird getBird() { return bird; }
+    public PipeRing getPipes() { return pipes; }
+    public Mario getMario() { return mario; }
+    public List<Fireball> getFireballs() { return fireballs; }
+
+    // Modifiers
+    // -------------------------------------------------------
+    public void setNewGraphicsEnabled(boolean enabled) { newGraphicsEnabled = enabled; }
+    public void setHighScore(int highScore) { this.highScore = highScore; }
+
+    /**
+     * Advances the game by one tick.
+     * <p>
+     * The input is a combination of the {@link #FLAP}, {@link #RESTART} and
+     * {@link #TOGGLE_GRAPHICS} bits, and is applied before anything else in the
+     * tick, just as key and mouse events used to be handled between two frames.
+     *
+     * @param input the input bits for this tick
+     */
+    public void step(int input) {
+        events = 0;
+        tick++;
+        savePositions();
+
+        if ((input & TOGGLE_GRAPHICS) != 0) {
+            newGraphicsEnabled = !newGraphicsEnabled;
+        }
+        if ((input & RESTART) != 0 && mode == CRASHED) {
+            restart();
+        }
+        if ((input & FLAP) != 0 && mode != CRASHED) {
+            bird.fly();
+            events |= SOUND_FLY;
+            if (mode == READY) {
+                mode = PLAYING;
+            }
+        }
+
+        // Detect when the bird hits the ground
+        if (bird.getY() + bird.getHeight() >= GROUND_LEVEL && (mode == PLAYING || mode == MARIO)) {
+            crash();
+        }
+
+        if (mode == MARIO) {
+            for (int cue = marioTimeline.poll(tick); cue != Timeline.NONE; cue = marioTimeline.poll(tick)) {
+                switch (cue) {
+                    case CUE_THROW:
+                        fireball();
+                        mario.animateThrow();
+                        break;
+                    case CUE_STAND:
+                        mario.stand();
+                        break;
+                    case CUE_JUMP:
+                        mario.jump();
+                        break;
+                    case CUE_FINAL_JUMP:
+                        mario.finalJump();
+                        break;
+                }
+            }
+
+            // Fireballs
+            for (int i = 0; i < fireballs.size(); i++) {
+                Fireball fireball = fireballs.get(i);
+                if (bird.intersects(fireball)) {
+                    crash();
+                }
+                fireball.update();
+            }
+
+            // If Mario lands on the bird, Mario jumps off it and game ends
+            if (bird.intersects(mario)) {
+                mario.jump();
+                crash();
+            }
+
+            mario.update();
+
+            if (mario.isFinished()) {
+                mode = PLAYING;
+            }
+        }
+
+        for (int i = 0; i < pipes.size(); i++) {
+            Pipe pipe = pipes.get(i);
+            if (mode == PLAYING || mode == MARIO) {
+                pipe.update();
+            }
+
+            // Increment the score when the bird passes between a pair of pipes. The
+            // pipes behind the bird have all been scored, so only the next one can be
+            if (i == nextPipeToScore && pipe.getPreviousX() > bird.getX() && pipe.getX() <= bird.getX()
+                    && (mode == PLAYING || mode == MARIO)) {
+                nextPipeToScore++;
+                score++;
+                events |= SOUND_SCORE;
+                if ((score + 3) % 50 == 0) {
+                    mode = MARIO;
+                }
+            }
+
+            // Detect when the bird crashes into a pipe. The pipes are in order of x, so
+            // only the one or two next to the bird get past the first test in intersects
+            if ((mode == PLAYING || mode == MARIO) && bird.intersects(pipe)) {
+                crash();
+            }
+
+            // Have Mario appear out of the pipe
+            if (pipe.isMarioPipe()) {
+                if (mode == MARIO && pipe.getXVel() != 0 && pipe.getX() < WIDTH - 185) {
+                    pipe.setXVel(0);
+                    clearFireballs();
+                    mario.start(pipe);
+                    marioTimeline.start(tick);
+                } else if (mode == PLAYING && pipe.getXVel() == 0) {
+                    pipe.setXVel(X_VELOCITY);
+                }
+            }
+        }
+
+        // Add new pipe when previous pipe is far enough
+        Pipe lastPipe = pipes.last();
+        if (mode == PLAYING && lastPipe.getX() < PIPE_SPACING_X) {
+            pipes.add(course.next(), false);
+        } else if (mode == MARIO && lastPipe.getX() < WIDTH - 200 && !lastPipe.isMarioPipe()) {
+            pipes.add(MARIO_PIPE_SHIFT, true);
+        }
+
+        // Remove pipes that have gone off-screen
+        Pipe firstPipe = pipes.first();
+        if (firstPipe.getX() < -firstPipe.getWidth()) {
+            pipes.removeFirst();
+            if (nextPipeToScore > 0) {
+                nextPipeToScore--;
+            }
+        }
+
+        // Scroll the scenery, which the backdrop and ground follow at their own speeds
+        if (mode != CRASHED) {
+            scrollX -= X_VELOCITY;
+        }
+
+        // Animate the bird
+        if (!newGraphicsEnabled) {
+            bird.setColor(Bird.YELLOW);
+        }
+        switch (mode) {
+            case READY:
+                if (tick % 7 == 0) {
+                    bird.animate();
+                }
+                break;
+            case MARIO:
+            case PLAYING:
+                if (tick % 7 == 0) {
+                    bird.animate();
+                }
+                bird.update(0, GROUND_LEVEL);
+                break;
+            case CRASHED:
+                bird.update(0, GROUND_LEVEL);
+                break;
+        }
+
+        events |= mario.takeSounds();
+    }
+
+    /**
+     * Remembers where everything is at the start of a tick, so that the game can
+     * be drawn in between two ticks.
+     */
+    private void savePositions() {
+        lastScrollX = scrollX;
+        bird.savePosition();
+        for (int i = 0; i < pipes.size(); i++) {
+            pipes.get(i).savePosition();
+        }
+        mario.savePosition();
+        for (int i = 0; i < fireballs.size(); i++) {
+            fireballs.get(i).savePosition();
+        }
+    }
+
+    public void crash() {
+        mode = CRASHED;
+        if (score > highScore) {
+            newHighScore = true;
+            highScore = score;
+            events |= HIGH_SCORE_CHANGED;
+        }
+        events |= SOUND_DIE | SOUND_HIT | GAME_OVER;
+    }
+
+    public void fireball() {
+        double dx = bird.getX() - mario.getX();
+        double dy = bird.getY() - mario.getY();
+        double dir = Math.atan2(dy, dx);
+        int vel = 10;
+        Fireball fireball = spareFireballs.isEmpty() ? new Fireball(0, 0, 0, 0)
+                : spareFireballs.remove(spareFireballs.size() - 1);
+        fireball.launch(mario.getX(), mario.getY(), vel * Math.cos(dir), vel * Math.sin(dir));
+        fireballs.add(fireball);
+        mario.animateThrow();
+    }
+
+    /**
+     * Takes away every fireball, keeping them to be thrown again.
+     */
+    private void clearFireballs() {
+        for (int i = 0; i < fireballs.size(); i++) {
+            spareFireballs.add(fireballs.get(i));
+        }
+        fireballs.clear();
+    }
+
+    public void restart() {
+        score = 0;
+        mode = READY;
+        newHighScore = false;
+        dark = random.nextBoolean();
+        bird.reset();
+        bird.setColor(randomBirdColor());
+        course.reset(fixedCourse ? course.getSeed() : random.nextLong());
+        pipes.clear();
+        pipes.add(course.next(), false);
+        nextPipeToScore = 0;
+        clearFireballs();
+        events |= SOUND_SWOOSH;
+    }
+
+    public int randomBirdColor() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return Bird.YELLOW;
+            case 1:
+                return Bird.BLUE;
+            default:
+                return Bird.RED;
+        }
+    }
+
+}
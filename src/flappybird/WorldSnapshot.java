@@ -0,0 +1,149 @@
+package flappybird;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A copy of everything that is drawn from a {@link World} after one tick: the
+ * bird, the pipes, Mario and his fireballs, the score and the mode.
+ * <p>
+ * A snapshot is filled in by the thread that steps the world and then handed
+ * to the thread that draws it, which only reads it. Snapshots are used over
+ * and over through a {@link SnapshotBuffer}, so the bird, the pipes and the
+ * fireballs are copied into objects the snapshot already has, and filling one
+ * in allocates nothing once it has held as many pipes and fireballs as the
+ * game ever has on the screen.
+ * <p>
+ * A snapshot also carries the times of the player's inputs that the tick used,
+ * so that the thread that draws it can tell how long they took to be shown.
+ *
+ * @author Jiaxuan Wang
+ */
+public class WorldSnapshot {
+
+    private int tick;
+    private int mode;
+    private int score;
+    private int highScore;
+    private long scrollX;
+    private long lastScrollX;
+    private boolean newHighScore;
+    private boolean newGraphicsEnabled;
+    private boolean dark;
+    private int ghostTicks;
+    private long time;
+
+    private final Bird bird = new Bird();
+    private Pipe[] pipes = new Pipe[0];
+    private int pipeCount;
+    private final Mario mario = new Mario();
+    private Fireball[] fireballs = new Fireball[0];
+    private int fireballCount;
+
+    private final long[] inputTimes;
+    private int inputCount;
+
+    /**
+     * Constructs an empty {@code WorldSnapshot}.
+     *
+     * @param inputCapacity the most input times it keeps
+     */
+    public WorldSnapshot(int inputCapacity) {
+        inputTimes = new long[inputCapacity];
+    }
+
+    // Accessors
+    // -------------------------------------------------------
+    public int getTick() { return tick; }
+    public int getMode() { return mode; }
+    public int getScore() { return score; }
+    public int getHighScore() { return highScore; }
+    public long getScrollX() { return scrollX; }
+    public long getLastScrollX() { return lastScrollX; }
+    public boolean isNewHighScore() { return newHighScore; }
+    public boolean isNewGraphicsEnabled() { return newGraphicsEnabled; }
+    public boolean isDark() { return dark; }
+    public int getGhostTicks() { return ghostTicks; }
+    public long getTime() { return time; }
+    public Bird getBird() { return bird; }
+    public int getPipeCount() { return pipeCount; }
+    public Pipe getPipe(int index) { return pipes[index]; }
+    public Mario getMario() { return mario; }
+    public int getFireballCount() { return fireballCount; }
+    public Fireball getFireball(int index) { return fireballs[index]; }
+    public int getInputCount() { return inputCount; }
+    public long getInputTime(int index) { return inputTimes[index]; }
+
+    /**
+     * Copies a world that has just been stepped into this snapshot. The input
+     * times are left as they are.
+     *
+     * @param world      the world
+     * @param ghostTicks the number of ticks since the first flap of the game,
+     *                   which the ghosts are lined up by
+     * @param time       the {@code System.nanoTime()} of the tick
+     */
+    public void capture(World world, int ghostTicks, long time) {
+        tick = world.getTick();
+        mode = world.getMode();
+        score = world.getScore();
+        highScore = world.getHighScore();
+        scrollX = world.getScrollX();
+        lastScrollX = world.getLastScrollX();
+        newHighScore = world.isNewHighScore();
+        newGraphicsEnabled = world.isNewGraphicsEnabled();
+        dark = world.isDark();
+        this.ghostTicks = ghostTicks;
+        this.time = time;
+
+        bird.copyFrom(world.getBird());
+
+        PipeRing ring = world.getPipes();
+        pipeCount = ring.size();
+        if (pipes.length < pipeCount) {
+            int length = pipes.length;
+            pipes = Arrays.copyOf(pipes, pipeCount);
+            for (int i = length; i < pipeCount; i++) {
+                pipes[i] = new Pipe(0, 0, 0);
+            }
+        }
+        for (int i = 0; i < pipeCount; i++) {
+            pipes[i].copyFrom(ring.get(i));
+        }
+
+        mario.copyFrom(world.getMario());
+
+        List<Fireball> thrown = world.getFireballs();
+        fireballCount = thrown.size();
+        if (fireballs.length < fireballCount) {
+            int length = fireballs.length;
+            fireballs = Arrays.copyOf(fireballs, fireballCount);
+            for (int i = length; i < fireballCount; i++) {
+                fireballs[i] = new Fireball(0, 0, 0, 0);
+            }
+        }
+        for (int i = 0; i < fireballCount; i++) {
+            fireballs[i].copyFrom(thrown.get(i));
+        }
+    }
+
+    /**
+     * Adds the time of an input the tick used. Once the snapshot is full, more
+     * inputs are not kept.
+     *
+     * @param time the {@code System.nanoTime()} the input arrived at
+     */
+    public void addInputTime(long time) {
+        if (inputCount < inputTimes.length) {
+            inputTimes[inputCount++] = time;
+        }
+    }
+
+    /**
+     * Forgets the input times, once the snapshot they came with has been drawn.
+     */
+    public void clearInputTimes() {
+        inputCount = 0;
+    }
+
+}